@@ -6,4 +6,5 @@ import lombok.Data;
 public class LoginRequest {
     private String email;
     private String password;
+    private String guestCartToken; // tùy chọn: token giỏ hàng khách (X-Cart-Token) để gộp vào giỏ sau khi đăng nhập
 }
@@ -3,11 +3,14 @@ package com.example.demo.auth.service;
 import com.example.demo.auth.dto.AuthResponse;
 import com.example.demo.auth.dto.LoginRequest;
 import com.example.demo.auth.dto.RegisterRequest;
+import com.example.demo.cart.service.CartService;
+import com.example.demo.cart.service.GuestCartService;
 import com.example.demo.security.jwt.JwtService;
 import com.example.demo.user.entity.Role;
 import com.example.demo.user.entity.User;
 import com.example.demo.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -18,12 +21,15 @@ import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService  jwtService;
     private final AuthenticationManager authenticationManager;
     private final RedisTemplate<String, Object> redisTemplate;
+    private final CartService cartService;
+    private final GuestCartService guestCartService;
     private static final String BLACKLIST_PREFIX = "blacklist:";
 
 
@@ -73,9 +79,23 @@ public class AuthService {
                        )
                );
                var user = userRepository.findUserByEmail(loginRequest.getEmail()).orElseThrow();
+               mergeGuestCart(user, loginRequest.getGuestCartToken());
                var accessToken = jwtService.generateToken(user);
                var refreshToken = jwtService.generateRefreshToken(user);
                return AuthResponse.builder().accessToken(accessToken).refreshToken(refreshToken).fullname(user.getFullName()).role(user.getRole()).build();
     }
 
+    // Gộp lỗi (vd. vượt tồn kho) không làm hỏng đăng nhập: giỏ khách được giữ lại để client tự xử lý
+    private void mergeGuestCart(User user, String guestCartToken) {
+        if (!guestCartService.isValidToken(guestCartToken)) {
+            return;
+        }
+        try {
+            cartService.mergeGuestCart(user.getId(), guestCartToken);
+            guestCartService.delete(guestCartToken);
+        } catch (RuntimeException e) {
+            log.warn("Không gộp được giỏ hàng khách vào giỏ của user {}: {}", user.getId(), e.getMessage());
+        }
+    }
+
 }
@@ -0,0 +1,15 @@
+package com.example.demo.cache;
+
+public final class CacheNames {
+    public static final String PRODUCT_DETAIL = "product-detail";
+    public static final String BRAND_NAME = "brand-name";
+    public static final String PRODUCT_VERSION = "product-version";
+    public static final String CATALOG_VERSION = "catalog-version";
+    public static final String RATING_SUMMARY = "rating-summary";
+    public static final String PRIMARY_IMAGE = "primary-image";
+    // Không lưu gì trên Redis, chỉ dùng kênh invalidation để các node nạp lại cây danh mục
+    public static final String CATEGORY_TREE = "category-tree";
+
+    private CacheNames() {
+    }
+}
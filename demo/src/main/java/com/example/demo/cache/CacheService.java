@@ -0,0 +1,278 @@
+package com.example.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Cache 2 tầng: L1 Caffeine trong JVM (giới hạn size/TTL) trước L2 Redis.
+// Evict xóa L1 + Redis rồi phát message lên kênh pub/sub để mọi node khác xóa L1 của mình.
+// Metrics: cache.gets{cache, tier=local|redis, result=hit|miss}
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CacheService {
+
+    private static final String KEY_PREFIX = "cache:";
+    private static final String INVALIDATION_CHANNEL = "cache:invalidation";
+    private static final String ALL_KEYS = "*";
+    private static final int DELETE_BATCH_SIZE = 500;
+
+    private final RedisTemplate<String, Object> redisTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final RedisMessageListenerContainer listenerContainer;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${cache.local.max-size:10000}")
+    private long localMaxSize;
+
+    @Value("${cache.local.ttl:1m}")
+    private Duration localTtl;
+
+    // Bỏ qua message do chính node này phát ra
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, Cache<String, Object>> localCaches = new ConcurrentHashMap<>();
+    private final Map<String, CacheMetrics> metrics = new ConcurrentHashMap<>();
+    private final Map<String, List<Consumer<String>>> invalidationListeners = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void subscribe() {
+        listenerContainer.addMessageListener(this::onInvalidationMessage, new ChannelTopic(INVALIDATION_CHANNEL));
+    }
+
+    public <T> T get(String cacheName, Object key, Class<T> type, Duration ttl, Supplier<T> loader) {
+        Cache<String, Object> local = localCache(cacheName);
+        CacheMetrics cacheMetrics = metricsFor(cacheName);
+        String localKey = String.valueOf(key);
+
+        Object value = local.getIfPresent(localKey);
+        if (type.isInstance(value)) {
+            cacheMetrics.localHits().increment();
+            return type.cast(value);
+        }
+        cacheMetrics.localMisses().increment();
+
+        String redisKey = buildKey(cacheName, key);
+        try {
+            Object cached = redisTemplate.opsForValue().get(redisKey);
+            if (type.isInstance(cached)) {
+                cacheMetrics.redisHits().increment();
+                local.put(localKey, cached);
+                return type.cast(cached);
+            }
+        } catch (Exception e) {
+            // Redis lỗi hoặc dữ liệu cũ không đọc được → coi như miss, không làm hỏng request
+            log.warn("Không đọc được cache {}: {}", redisKey, e.getMessage());
+        }
+
+        cacheMetrics.redisMisses().increment();
+        T loaded = loader.get();
+        if (loaded != null) {
+            put(cacheName, key, loaded, ttl);
+        }
+        return loaded;
+    }
+
+    // Lấy nhiều key một lúc: L1 → một lệnh MGET trên Redis → loader nhận tập key còn thiếu
+    public <K, T> Map<K, T> getAll(String cacheName, Collection<K> keys, Class<T> type, Duration ttl,
+                                   Function<Set<K>, Map<K, T>> loader) {
+        Cache<String, Object> local = localCache(cacheName);
+        CacheMetrics cacheMetrics = metricsFor(cacheName);
+        Map<K, T> result = new HashMap<>();
+        List<K> missing = new ArrayList<>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            Object value = local.getIfPresent(String.valueOf(key));
+            if (type.isInstance(value)) {
+                cacheMetrics.localHits().increment();
+                result.put(key, type.cast(value));
+            } else {
+                cacheMetrics.localMisses().increment();
+                missing.add(key);
+            }
+        }
+        if (missing.isEmpty()) {
+            return result;
+        }
+
+        Set<K> notInRedis = new LinkedHashSet<>(missing);
+        try {
+            List<Object> cached = redisTemplate.opsForValue()
+                    .multiGet(missing.stream().map(key -> buildKey(cacheName, key)).toList());
+            for (int i = 0; cached != null && i < missing.size(); i++) {
+                Object value = cached.get(i);
+                if (type.isInstance(value)) {
+                    K key = missing.get(i);
+                    cacheMetrics.redisHits().increment();
+                    local.put(String.valueOf(key), value);
+                    result.put(key, type.cast(value));
+                    notInRedis.remove(key);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Không đọc được cache {} ({} key): {}", cacheName, missing.size(), e.getMessage());
+        }
+        if (notInRedis.isEmpty()) {
+            return result;
+        }
+
+        notInRedis.forEach(key -> cacheMetrics.redisMisses().increment());
+        Map<K, T> loaded = loader.apply(notInRedis);
+        loaded.forEach((key, value) -> {
+            if (value != null) {
+                put(cacheName, key, value, ttl);
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+
+    public void put(String cacheName, Object key, Object value, Duration ttl) {
+        localCache(cacheName).put(String.valueOf(key), value);
+        String redisKey = buildKey(cacheName, key);
+        try {
+            redisTemplate.opsForValue().set(redisKey, value, ttl);
+        } catch (Exception e) {
+            log.warn("Không ghi được cache {}: {}", redisKey, e.getMessage());
+        }
+    }
+
+    public void evict(String cacheName, Object key) {
+        String localKey = String.valueOf(key);
+        String redisKey = buildKey(cacheName, key);
+        try {
+            redisTemplate.delete(redisKey);
+        } catch (Exception e) {
+            log.warn("Không xóa được cache {}: {}", redisKey, e.getMessage());
+        }
+        invalidateLocal(cacheName, localKey);
+        publishInvalidation(cacheName, localKey);
+    }
+
+    // Xóa toàn bộ cache name (SCAN theo prefix, không dùng KEYS), dùng cho thay đổi hiếm như danh mục
+    public void evictAll(String cacheName) {
+        try {
+            deleteRemoteKeys(cacheName);
+        } catch (Exception e) {
+            log.warn("Không xóa được cache {}: {}", cacheName, e.getMessage());
+        }
+        invalidateLocal(cacheName, ALL_KEYS);
+        publishInvalidation(cacheName, ALL_KEYS);
+    }
+
+    // Cho cache dẫn xuất trong bộ nhớ (vd. cây danh mục) nhận invalidation từ mọi node, kể cả node hiện tại.
+    // Listener nhận key bị xóa, hoặc "*" khi xóa toàn bộ
+    public void onInvalidation(String cacheName, Consumer<String> listener) {
+        invalidationListeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    private void onInvalidationMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length != 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+        invalidateLocal(parts[1], parts[2]);
+    }
+
+    private void invalidateLocal(String cacheName, String key) {
+        Cache<String, Object> local = localCaches.get(cacheName);
+        if (local != null) {
+            if (ALL_KEYS.equals(key)) {
+                local.invalidateAll();
+            } else {
+                local.invalidate(key);
+            }
+        }
+        for (Consumer<String> listener : invalidationListeners.getOrDefault(cacheName, List.of())) {
+            try {
+                listener.accept(key);
+            } catch (Exception e) {
+                log.warn("Listener invalidation của cache {} lỗi: {}", cacheName, e.getMessage());
+            }
+        }
+    }
+
+    private void publishInvalidation(String cacheName, String key) {
+        try {
+            stringRedisTemplate.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + cacheName + "|" + key);
+        } catch (Exception e) {
+            // Node khác sẽ tự hết hạn L1 sau cache.local.ttl
+            log.warn("Không phát được invalidation cho cache {}: {}", cacheName, e.getMessage());
+        }
+    }
+
+    private void deleteRemoteKeys(String cacheName) {
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(KEY_PREFIX + cacheName + ":*")
+                .count(1000)
+                .build();
+        List<String> batch = new ArrayList<>(DELETE_BATCH_SIZE);
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= DELETE_BATCH_SIZE) {
+                    redisTemplate.delete(batch);
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            redisTemplate.delete(batch);
+        }
+    }
+
+    private Cache<String, Object> localCache(String cacheName) {
+        return localCaches.computeIfAbsent(cacheName, name -> Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .build());
+    }
+
+    private String buildKey(String cacheName, Object key) {
+        return KEY_PREFIX + cacheName + ":" + key;
+    }
+
+    private CacheMetrics metricsFor(String cacheName) {
+        return metrics.computeIfAbsent(cacheName, name -> new CacheMetrics(
+                counter(name, "local", "hit"), counter(name, "local", "miss"),
+                counter(name, "redis", "hit"), counter(name, "redis", "miss")));
+    }
+
+    private Counter counter(String cacheName, String tier, String result) {
+        return Counter.builder("cache.gets")
+                .tag("cache", cacheName)
+                .tag("tier", tier)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record CacheMetrics(Counter localHits, Counter localMisses, Counter redisHits, Counter redisMisses) {
+    }
+}
@@ -34,19 +34,35 @@ public class CartController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
-    @PutMapping("/items/{itemId}")
-    @Operation(summary = "Cập nhật số lượng sản phẩm trong giỏ hàng")
+    @PostMapping("/items/batch")
+    @Operation(summary = "Thêm nhiều sản phẩm vào giỏ hàng", description = "Một transaction, cộng thêm vào số lượng đang có")
+    public ResponseEntity<CartResponse> addItems(@Valid @RequestBody BatchCartRequest request) {
+        CartResponse response = cartService.addItems(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/items")
+    @Operation(summary = "Thay toàn bộ giỏ hàng", description = "Giỏ chỉ còn đúng các sản phẩm gửi lên")
+    public ResponseEntity<CartResponse> replaceItems(@Valid @RequestBody BatchCartRequest request) {
+        CartResponse response = cartService.replaceItems(request);
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/items/{variantId}")
+    @Operation(summary = "Cập nhật số lượng sản phẩm trong giỏ hàng",
+            description = "variantId là id của item trong giỏ (CartItemResponse.id = variantId)")
     public ResponseEntity<CartResponse> updateCartItem(
-            @PathVariable Long itemId,
+            @PathVariable Long variantId,
             @Valid @RequestBody UpdateCartItemRequest request) {
-        CartResponse response = cartService.updateCartItem(itemId, request);
+        CartResponse response = cartService.updateCartItem(variantId, request);
         return ResponseEntity.ok(response);
     }
 
-    @DeleteMapping("/items/{itemId}")
-    @Operation(summary = "Xóa sản phẩm khỏi giỏ hàng")
-    public ResponseEntity<CartResponse> removeCartItem(@PathVariable Long itemId) {
-        CartResponse response = cartService.removeCartItem(itemId);
+    @DeleteMapping("/items/{variantId}")
+    @Operation(summary = "Xóa sản phẩm khỏi giỏ hàng",
+            description = "variantId là id của item trong giỏ (CartItemResponse.id = variantId)")
+    public ResponseEntity<CartResponse> removeCartItem(@PathVariable Long variantId) {
+        CartResponse response = cartService.removeCartItem(variantId);
         return ResponseEntity.ok(response);
     }
 
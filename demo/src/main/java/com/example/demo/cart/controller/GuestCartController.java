@@ -0,0 +1,70 @@
+package com.example.demo.cart.controller;
+
+import com.example.demo.cart.dto.AddToCartRequest;
+import com.example.demo.cart.dto.CartResponse;
+import com.example.demo.cart.dto.UpdateCartItemRequest;
+import com.example.demo.cart.service.GuestCartService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Token giỏ đi qua header X-Cart-Token; lần thêm đầu tiên không có token thì server cấp và trả lại trong header
+@RestController
+@RequestMapping("/api/guest-cart")
+@RequiredArgsConstructor
+@Tag(name = "Guest Cart", description = "API giỏ hàng cho khách chưa đăng nhập")
+public class GuestCartController {
+
+    public static final String CART_TOKEN_HEADER = "X-Cart-Token";
+
+    private final GuestCartService guestCartService;
+
+    @GetMapping
+    @Operation(summary = "Lấy giỏ hàng của khách")
+    public ResponseEntity<CartResponse> getCart(@RequestHeader(value = CART_TOKEN_HEADER, required = false) String token) {
+        if (!guestCartService.isValidToken(token)) {
+            return ResponseEntity.ok(guestCartService.getCart(null));
+        }
+        return withToken(token, HttpStatus.OK, guestCartService.getCart(token));
+    }
+
+    @PostMapping("/items")
+    @Operation(summary = "Thêm sản phẩm vào giỏ hàng của khách", description = "Cấp token mới nếu chưa có")
+    public ResponseEntity<CartResponse> addToCart(
+            @RequestHeader(value = CART_TOKEN_HEADER, required = false) String token,
+            @Valid @RequestBody AddToCartRequest request) {
+        String cartToken = guestCartService.resolveToken(token);
+        return withToken(cartToken, HttpStatus.CREATED, guestCartService.addToCart(cartToken, request));
+    }
+
+    @PutMapping("/items/{variantId}")
+    @Operation(summary = "Cập nhật số lượng trong giỏ hàng của khách")
+    public ResponseEntity<CartResponse> updateCartItem(
+            @RequestHeader(CART_TOKEN_HEADER) String token,
+            @PathVariable Long variantId,
+            @Valid @RequestBody UpdateCartItemRequest request) {
+        return withToken(token, HttpStatus.OK, guestCartService.updateCartItem(token, variantId, request));
+    }
+
+    @DeleteMapping("/items/{variantId}")
+    @Operation(summary = "Xóa sản phẩm khỏi giỏ hàng của khách")
+    public ResponseEntity<CartResponse> removeCartItem(
+            @RequestHeader(CART_TOKEN_HEADER) String token,
+            @PathVariable Long variantId) {
+        return withToken(token, HttpStatus.OK, guestCartService.removeCartItem(token, variantId));
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Xóa toàn bộ giỏ hàng của khách")
+    public ResponseEntity<CartResponse> clearCart(@RequestHeader(CART_TOKEN_HEADER) String token) {
+        return withToken(token, HttpStatus.OK, guestCartService.clearCart(token));
+    }
+
+    private ResponseEntity<CartResponse> withToken(String token, HttpStatus status, CartResponse body) {
+        return ResponseEntity.status(status).header(CART_TOKEN_HEADER, token).body(body);
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.cart.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchCartRequest {
+    @NotNull(message = "Danh sách sản phẩm không được để trống")
+    @Size(max = 100, message = "Tối đa 100 sản phẩm mỗi lần")
+    @Valid
+    @Builder.Default
+    private List<AddToCartRequest> items = new ArrayList<>();
+}
@@ -2,11 +2,32 @@ package com.example.demo.cart.repository;
 
 import com.example.demo.cart.entity.Cart;
 import com.example.demo.user.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 public interface CartRepository extends JpaRepository<Cart, Long> {
     Optional<Cart> findByUser(User user);
-}
+    Optional<Cart> findByUserId(Long userId);
+
+    // Ghi giỏ hàng từ Redis xuống DB: khóa dòng để flush định kỳ và flush trước checkout không ghi chồng nhau
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Cart c WHERE c.user.id = :userId")
+    Optional<Cart> findByUserIdForUpdate(@Param("userId") Long userId);
 
+    // Xóa tối đa :limit giỏ không sửa từ trước :cutoff cùng item trong một câu lệnh (đi theo idx_cart_updated_at).
+    // SKIP LOCKED: bỏ qua giỏ đang bị giao dịch khác giữ khóa (đang được sửa, hoặc node khác đang dọn)
+    @Modifying
+    @Query(value = "WITH expired AS (SELECT id FROM carts WHERE updated_at < :cutoff " +
+                   "ORDER BY updated_at LIMIT :limit FOR UPDATE SKIP LOCKED), " +
+                   "deleted_items AS (DELETE FROM cart_items WHERE cart_id IN (SELECT id FROM expired)) " +
+                   "DELETE FROM carts WHERE id IN (SELECT id FROM expired)",
+           nativeQuery = true)
+    int deleteIdleCarts(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+}
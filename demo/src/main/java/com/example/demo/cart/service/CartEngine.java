@@ -0,0 +1,31 @@
+package com.example.demo.cart.service;
+
+import com.example.demo.cart.dto.AddToCartRequest;
+import com.example.demo.cart.dto.CartResponse;
+import com.example.demo.cart.dto.UpdateCartItemRequest;
+
+import java.util.Map;
+
+// Nơi lưu giỏ hàng, chọn bằng cart.engine: jpa (mặc định, đọc/ghi thẳng bảng carts/cart_items)
+// hoặc redis (hash trên Redis, ghi xuống DB phía sau). Cả hai trả cùng dạng CartResponse
+public interface CartEngine {
+
+    CartResponse getCart(Long userId);
+
+    CartResponse addToCart(Long userId, AddToCartRequest request);
+
+    // quantities: variantId → số lượng (đã gộp trùng). replace = true: giỏ chỉ còn đúng các variant này,
+    // false: cộng thêm vào số lượng đang có. Tất cả hoặc không gì cả nếu một variant không đủ hàng
+    CartResponse addItems(Long userId, Map<Long, Integer> quantities, boolean replace);
+
+    // Item trong giỏ xác định bằng variantId ở mọi engine (CartItemResponse.id = variantId), không phải id dòng cart_items
+    CartResponse updateCartItem(Long userId, Long variantId, UpdateCartItemRequest request);
+
+    CartResponse removeCartItem(Long userId, Long variantId);
+
+    CartResponse clearCart(Long userId);
+
+    // Đảm bảo bảng carts/cart_items phản ánh giỏ hiện tại (gọi trong transaction trước khi checkout đọc giỏ)
+    default void flushToDatabase(Long userId) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.cart.service;
+
+import com.example.demo.cart.dto.CartItemResponse;
+import com.example.demo.cart.dto.CartResponse;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductVariantRepository;
+import com.example.demo.product.service.PrimaryImageResolver;
+import com.example.demo.promotion.entity.Coupon;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Tính tiền giỏ hàng dùng chung cho mọi CartEngine để response giống hệt nhau
+@Component
+@RequiredArgsConstructor
+public class CartResponseBuilder {
+
+    private final ProductVariantRepository variantRepository;
+    private final PrimaryImageResolver primaryImageResolver;
+
+    public CartResponse build(Long cartId, List<CartItemResponse> items, Coupon coupon) {
+        BigDecimal subtotal = subtotal(items);
+        BigDecimal discountAmount = BigDecimal.ZERO;
+        String couponCode = null;
+
+        if (coupon != null && subtotal.compareTo(coupon.getMinOrderAmount()) >= 0) {
+            couponCode = coupon.getCode();
+            if (coupon.getType().name().equals("FIXED_AMOUNT")) {
+                discountAmount = coupon.getAmount();
+            } else { // PERCENTAGE
+                discountAmount = subtotal.multiply(coupon.getAmount())
+                        .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+            }
+        }
+
+        return CartResponse.builder()
+                .cartId(cartId)
+                .items(items)
+                .subtotal(subtotal)
+                .discountAmount(discountAmount)
+                .total(subtotal.subtract(discountAmount))
+                .couponCode(couponCode)
+                .build();
+    }
+
+    // Dòng giỏ cho giỏ chỉ lưu variantId → số lượng (Redis, giỏ khách): variant kèm sản phẩm bằng một IN-query,
+    // ảnh chính qua PrimaryImageResolver. prices: giá đã chụp lúc thêm; variant không có giá chụp dùng giá hiện tại.
+    // Item id là variantId; variant đã bị xóa khỏi catalog thì bỏ qua
+    public List<CartItemResponse> buildItems(Map<Long, Integer> quantities, Map<Long, BigDecimal> prices) {
+        List<CartItemResponse> items = new ArrayList<>();
+        if (quantities.isEmpty()) {
+            return items;
+        }
+        Map<Long, ProductVariant> variants = variantRepository.findWithProductByIdIn(quantities.keySet()).stream()
+                .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+        Map<Long, String> primaryImages = primaryImageResolver.resolve(variants.values().stream()
+                .map(variant -> variant.getProduct().getId())
+                .collect(Collectors.toSet()));
+
+        quantities.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator.naturalOrder()))
+                .forEach(entry -> {
+                    ProductVariant variant = variants.get(entry.getKey());
+                    if (variant == null) {
+                        return;
+                    }
+                    BigDecimal price = prices.getOrDefault(entry.getKey(), variant.getPrice());
+                    items.add(CartItemResponse.builder()
+                            .id(variant.getId())
+                            .variantId(variant.getId())
+                            .productId(variant.getProduct().getId())
+                            .productName(variant.getProduct().getName())
+                            .productImage(primaryImages.getOrDefault(variant.getProduct().getId(), ""))
+                            .variantAttributes(variant.getAttributes())
+                            .quantity(entry.getValue())
+                            .price(price)
+                            .subtotal(price.multiply(BigDecimal.valueOf(entry.getValue())))
+                            .availableStock(variant.getStock())
+                            .build());
+                });
+        return items;
+    }
+
+    public BigDecimal subtotal(List<CartItemResponse> items) {
+        return items.stream()
+                .map(CartItemResponse::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.cart.service;
+
+import com.example.demo.cart.repository.CartRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Dọn giỏ hàng bỏ quên: xóa giỏ không sửa quá max-idle theo từng chunk nhỏ, mỗi chunk một transaction ngắn
+// và nghỉ giữa các chunk, để không giữ khóa lâu hay dồn I/O tranh với traffic (mặc định chạy lúc 3h sáng)
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CartRetentionService {
+
+    private final CartRepository cartRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${cart.retention.max-idle:90d}")
+    private Duration maxIdle;
+
+    @Value("${cart.retention.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${cart.retention.pause:200ms}")
+    private Duration pause;
+
+    @Value("${cart.retention.max-chunks:200}")
+    private int maxChunks;
+
+    @Scheduled(cron = "${cart.retention.cron:0 0 3 * * *}")
+    public void purgeIdleCarts() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(maxIdle);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long deleted = 0;
+        int chunks = 0;
+        // Giới hạn số chunk mỗi lượt: phần còn lại để lượt sau, job không kéo dài sang giờ cao điểm
+        while (chunks < maxChunks) {
+            Integer count = transactionTemplate.execute(status -> cartRepository.deleteIdleCarts(cutoff, chunkSize));
+            chunks++;
+            deleted += count != null ? count : 0;
+            if (count == null || count < chunkSize) {
+                break;
+            }
+            try {
+                Thread.sleep(pause.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (deleted > 0) {
+            log.info("Đã xóa {} giỏ hàng không hoạt động từ trước {} ({} chunk)", deleted, cutoff, chunks);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.demo.cart.service;
+
+import com.example.demo.cart.dto.AddToCartRequest;
+import com.example.demo.cart.dto.CartItemResponse;
+import com.example.demo.cart.dto.CartResponse;
+import com.example.demo.cart.dto.UpdateCartItemRequest;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+// Giỏ hàng của khách chưa đăng nhập: hash Redis guest-cart:{token} (variantId → số lượng), hết hạn sau cart.guest.ttl
+// kể từ lần sửa cuối. Token ngẫu nhiên (UUID) do server cấp, client gửi lại qua header X-Cart-Token.
+// Khi đăng nhập kèm token, giỏ được gộp vào giỏ của user (CartService.mergeGuestCart)
+@Service
+@RequiredArgsConstructor
+public class GuestCartService {
+
+    private static final String KEY_PREFIX = "guest-cart:";
+    private static final Pattern TOKEN_PATTERN =
+            Pattern.compile("^[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}$");
+
+    // ARGV: variantId, quantity, stock, ttl(s) → số lượng mới, hoặc -1 nếu vượt tồn kho
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>("""
+            local current = tonumber(redis.call('HGET', KEYS[1], ARGV[1]) or '0')
+            if current + tonumber(ARGV[2]) > tonumber(ARGV[3]) then
+                return -1
+            end
+            local quantity = redis.call('HINCRBY', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            return quantity
+            """, Long.class);
+
+    // ARGV: variantId, quantity, ttl(s) → 0 nếu item không có trong giỏ
+    private static final RedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], ARGV[1]) == 0 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2])
+            redis.call('EXPIRE', KEYS[1], ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ProductVariantRepository variantRepository;
+    private final CartResponseBuilder cartResponseBuilder;
+
+    @Value("${cart.guest.ttl:7d}")
+    private Duration guestCartTtl;
+
+    // Token client gửi lên nếu hợp lệ, ngược lại cấp token mới
+    public String resolveToken(String token) {
+        return isValidToken(token) ? token : UUID.randomUUID().toString();
+    }
+
+    public boolean isValidToken(String token) {
+        return token != null && TOKEN_PATTERN.matcher(token).matches();
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse getCart(String token) {
+        List<CartItemResponse> items = cartResponseBuilder.buildItems(quantities(token), Map.of());
+        return cartResponseBuilder.build(null, items, null);
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse addToCart(String token, AddToCartRequest request) {
+        ProductVariant variant = variantRepository.findById(request.getVariantId())
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", request.getVariantId()));
+
+        // Kiểm tra stock
+        if (variant.getStock() < request.getQuantity()) {
+            throw new RuntimeException("Số lượng sản phẩm không đủ. Còn lại: " + variant.getStock());
+        }
+
+        Long quantity = stringRedisTemplate.execute(ADD_SCRIPT, List.of(key(token)), String.valueOf(variant.getId()),
+                String.valueOf(request.getQuantity()), String.valueOf(variant.getStock()), ttlSeconds());
+        if (quantity == null || quantity < 0) {
+            throw new RuntimeException("Số lượng vượt quá tồn kho. Còn lại: " + variant.getStock());
+        }
+        return getCart(token);
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse updateCartItem(String token, Long variantId, UpdateCartItemRequest request) {
+        if (!isValidToken(token)) {
+            throw new ResourceNotFoundException("CartItem", variantId);
+        }
+        ProductVariant variant = variantRepository.findById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("CartItem", variantId));
+
+        // Kiểm tra stock
+        if (request.getQuantity() > variant.getStock()) {
+            throw new RuntimeException("Số lượng vượt quá tồn kho. Còn lại: " + variant.getStock());
+        }
+
+        Long updated = stringRedisTemplate.execute(UPDATE_SCRIPT, List.of(key(token)), String.valueOf(variantId),
+                String.valueOf(request.getQuantity()), ttlSeconds());
+        if (updated == null || updated == 0) {
+            throw new ResourceNotFoundException("CartItem", variantId);
+        }
+        return getCart(token);
+    }
+
+    @Transactional(readOnly = true)
+    public CartResponse removeCartItem(String token, Long variantId) {
+        if (!isValidToken(token)) {
+            throw new ResourceNotFoundException("CartItem", variantId);
+        }
+        Long removed = stringRedisTemplate.opsForHash().delete(key(token), String.valueOf(variantId));
+        if (removed == null || removed == 0) {
+            throw new ResourceNotFoundException("CartItem", variantId);
+        }
+        return getCart(token);
+    }
+
+    public CartResponse clearCart(String token) {
+        delete(token);
+        return cartResponseBuilder.build(null, List.of(), null);
+    }
+
+    // variantId → số lượng; token không hợp lệ hoặc giỏ đã hết hạn → rỗng
+    public Map<Long, Integer> quantities(String token) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        if (!isValidToken(token)) {
+            return quantities;
+        }
+        stringRedisTemplate.opsForHash().entries(key(token)).forEach((variantId, quantity) ->
+                quantities.put(Long.valueOf((String) variantId), Integer.valueOf((String) quantity)));
+        return quantities;
+    }
+
+    public void delete(String token) {
+        if (isValidToken(token)) {
+            stringRedisTemplate.delete(key(token));
+        }
+    }
+
+    private String key(String token) {
+        return KEY_PREFIX + token;
+    }
+
+    private String ttlSeconds() {
+        return String.valueOf(guestCartTtl.toSeconds());
+    }
+}
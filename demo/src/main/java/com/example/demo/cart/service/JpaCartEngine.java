@@ -0,0 +1,234 @@
+package com.example.demo.cart.service;
+
+import com.example.demo.cart.dto.AddToCartRequest;
+import com.example.demo.cart.dto.CartItemResponse;
+import com.example.demo.cart.dto.CartResponse;
+import com.example.demo.cart.dto.UpdateCartItemRequest;
+import com.example.demo.cart.entity.Cart;
+import com.example.demo.cart.entity.CartItem;
+import com.example.demo.cart.repository.CartItemRepository;
+import com.example.demo.cart.repository.CartRepository;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.product.entity.Product;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductVariantRepository;
+import com.example.demo.product.service.PrimaryImageResolver;
+import com.example.demo.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Giỏ hàng đọc/ghi thẳng bảng carts/cart_items; chạy trong transaction của CartService
+@Component
+@ConditionalOnProperty(name = "cart.engine", havingValue = "jpa", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JpaCartEngine implements CartEngine {
+
+    private final CartRepository cartRepository;
+    private final CartItemRepository cartItemRepository;
+    private final UserRepository userRepository;
+    private final ProductVariantRepository variantRepository;
+    private final PrimaryImageResolver primaryImageResolver;
+    private final CartResponseBuilder cartResponseBuilder;
+
+    @Override
+    public CartResponse getCart(Long userId) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseGet(() -> createCart(userId));
+
+        return buildCartResponse(cart);
+    }
+
+    @Override
+    public CartResponse addToCart(Long userId, AddToCartRequest request) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseGet(() -> createCart(userId));
+
+        ProductVariant variant = variantRepository.findById(request.getVariantId())
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", request.getVariantId()));
+
+        // Kiểm tra stock
+        if (variant.getStock() < request.getQuantity()) {
+            throw new RuntimeException("Số lượng sản phẩm không đủ. Còn lại: " + variant.getStock());
+        }
+
+        // Tìm item đã có trong giỏ
+        CartItem existingItem = cartItemRepository.findByCartAndVariantId(cart, request.getVariantId())
+                .orElse(null);
+
+        if (existingItem != null) {
+            // Cập nhật số lượng
+            int newQuantity = existingItem.getQuantity() + request.getQuantity();
+            if (newQuantity > variant.getStock()) {
+                throw new RuntimeException("Số lượng vượt quá tồn kho. Còn lại: " + variant.getStock());
+            }
+            existingItem.setQuantity(newQuantity);
+            existingItem.setPrice(variant.getPrice()); // Cập nhật giá mới nhất
+            cartItemRepository.save(existingItem);
+        } else {
+            // Tạo item mới
+            CartItem newItem = CartItem.builder()
+                    .cart(cart)
+                    .variant(variant)
+                    .quantity(request.getQuantity())
+                    .price(variant.getPrice())
+                    .build();
+            cartItemRepository.save(newItem);
+        }
+
+        touch(cart);
+        return buildCartResponse(cart);
+    }
+
+    @Override
+    public CartResponse addItems(Long userId, Map<Long, Integer> quantities, boolean replace) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseGet(() -> createCart(userId));
+        Map<Long, ProductVariant> variants = loadVariants(quantities.keySet());
+
+        // Item đang có: một query nạp cả collection
+        Map<Long, CartItem> existingItems = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            existingItems.put(item.getVariant().getId(), item);
+        }
+
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ProductVariant variant = variants.get(entry.getKey());
+            CartItem existingItem = existingItems.get(entry.getKey());
+            int newQuantity = entry.getValue() + (existingItem != null && !replace ? existingItem.getQuantity() : 0);
+            if (newQuantity > variant.getStock()) {
+                throw new RuntimeException("Sản phẩm " + variant.getSku() + " vượt quá tồn kho. Còn lại: " + variant.getStock());
+            }
+            if (existingItem != null) {
+                existingItem.setQuantity(newQuantity);
+                existingItem.setPrice(variant.getPrice()); // Cập nhật giá mới nhất
+            } else {
+                cart.getItems().add(CartItem.builder()
+                        .cart(cart)
+                        .variant(variant)
+                        .quantity(newQuantity)
+                        .price(variant.getPrice())
+                        .build());
+            }
+        }
+        if (replace) {
+            cart.getItems().removeIf(item -> !quantities.containsKey(item.getVariant().getId()));
+        }
+
+        // Item mới ghi theo cascade, INSERT gửi theo batch
+        cart.setUpdatedAt(LocalDateTime.now());
+        return buildCartResponse(cartRepository.save(cart));
+    }
+
+    @Override
+    public CartResponse updateCartItem(Long userId, Long variantId, UpdateCartItemRequest request) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", "user", userId));
+
+        // Tìm theo giỏ của user nên không chạm được item của giỏ khác
+        CartItem item = cartItemRepository.findByCartAndVariantId(cart, variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("CartItem", variantId));
+
+        // Kiểm tra stock
+        if (request.getQuantity() > item.getVariant().getStock()) {
+            throw new RuntimeException("Số lượng vượt quá tồn kho. Còn lại: " + item.getVariant().getStock());
+        }
+
+        item.setQuantity(request.getQuantity());
+        item.setPrice(item.getVariant().getPrice()); // Cập nhật giá mới nhất
+        cartItemRepository.save(item);
+
+        touch(cart);
+        return buildCartResponse(cart);
+    }
+
+    @Override
+    public CartResponse removeCartItem(Long userId, Long variantId) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", "user", userId));
+
+        CartItem item = cartItemRepository.findByCartAndVariantId(cart, variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("CartItem", variantId));
+
+        cart.getItems().remove(item);
+        cartItemRepository.delete(item);
+        touch(cart);
+        return buildCartResponse(cart);
+    }
+
+    @Override
+    public CartResponse clearCart(Long userId) {
+        Cart cart = cartRepository.findByUserId(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("Cart", "user", userId));
+
+        cartItemRepository.deleteByCart(cart);
+        touch(cart);
+        return buildCartResponse(cart);
+    }
+
+    // Sửa item không làm Cart thay đổi, nên cập nhật updatedAt để job dọn giỏ bỏ quên không coi giỏ đang dùng là bỏ quên
+    private void touch(Cart cart) {
+        cart.setUpdatedAt(LocalDateTime.now());
+    }
+
+    // Một IN-query cho mọi variant (kèm sản phẩm để dựng response)
+    private Map<Long, ProductVariant> loadVariants(Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, ProductVariant> variants = variantRepository.findWithProductByIdIn(variantIds).stream()
+                .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+        for (Long variantId : variantIds) {
+            if (!variants.containsKey(variantId)) {
+                throw new ResourceNotFoundException("ProductVariant", variantId);
+            }
+        }
+        return variants;
+    }
+
+    private Cart createCart(Long userId) {
+        Cart cart = Cart.builder()
+                .user(userRepository.getReferenceById(userId))
+                .build();
+        return cartRepository.save(cart);
+    }
+
+    private CartResponse buildCartResponse(Cart cart) {
+        // Ảnh chính của mọi sản phẩm trong giỏ: cache, phần thiếu lấy bằng một IN-query
+        Map<Long, String> primaryImages = primaryImageResolver.resolve(cart.getItems().stream()
+                .map(item -> item.getVariant().getProduct().getId())
+                .collect(Collectors.toSet()));
+        List<CartItemResponse> items = cart.getItems().stream()
+                .map(item -> mapToCartItemResponse(item, primaryImages))
+                .collect(Collectors.toList());
+        return cartResponseBuilder.build(cart.getId(), items, null);
+    }
+
+    private CartItemResponse mapToCartItemResponse(CartItem item, Map<Long, String> primaryImages) {
+        ProductVariant variant = item.getVariant();
+        Product product = variant.getProduct();
+        String productImage = primaryImages.getOrDefault(product.getId(), "");
+
+        return CartItemResponse.builder()
+                .id(variant.getId()) // id item = variant id, giống RedisCartEngine
+                .variantId(variant.getId())
+                .productId(product.getId())
+                .productName(product.getName())
+                .productImage(productImage)
+                .variantAttributes(variant.getAttributes())
+                .quantity(item.getQuantity())
+                .price(item.getPrice())
+                .subtotal(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
+                .availableStock(variant.getStock())
+                .build();
+    }
+}
@@ -0,0 +1,411 @@
+package com.example.demo.cart.service;
+
+import com.example.demo.cart.dto.AddToCartRequest;
+import com.example.demo.cart.dto.CartItemResponse;
+import com.example.demo.cart.dto.CartResponse;
+import com.example.demo.cart.dto.UpdateCartItemRequest;
+import com.example.demo.cart.entity.Cart;
+import com.example.demo.cart.entity.CartItem;
+import com.example.demo.cart.repository.CartRepository;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductVariantRepository;
+import com.example.demo.user.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Giỏ hàng là một hash Redis cart:{userId}: q:{variantId} → số lượng, p:{variantId} → giá lúc thêm,
+// id → id dòng carts (nếu đã ghi xuống DB), _ → đánh dấu hash đã nạp. Mỗi thao tác ghi là một Lua script nguyên tử
+// (HINCRBY/HSET + EXPIRE + đánh dấu giỏ bẩn), bảng carts/cart_items được ghi phía sau theo chu kỳ (write-behind).
+// Item id trong response là variantId: item chưa có id DB cho tới lần flush
+@Component
+@ConditionalOnProperty(name = "cart.engine", havingValue = "redis")
+@RequiredArgsConstructor
+@Slf4j
+public class RedisCartEngine implements CartEngine {
+
+    private static final String KEY_PREFIX = "cart:";
+    private static final String DIRTY_KEY = "cart:dirty";
+    private static final String QUANTITY_PREFIX = "q:";
+    private static final String PRICE_PREFIX = "p:";
+    private static final String CART_ID_FIELD = "id";
+    private static final String LOADED_FIELD = "_";
+    private static final int FLUSH_BATCH_SIZE = 100;
+
+    // ARGV: variantId, quantity, stock, price, ttl(s), userId → số lượng mới, hoặc -1 nếu vượt tồn kho
+    private static final RedisScript<Long> ADD_SCRIPT = new DefaultRedisScript<>("""
+            local field = 'q:' .. ARGV[1]
+            local current = tonumber(redis.call('HGET', KEYS[1], field) or '0')
+            if current + tonumber(ARGV[2]) > tonumber(ARGV[3]) then
+                return -1
+            end
+            local quantity = redis.call('HINCRBY', KEYS[1], field, ARGV[2])
+            redis.call('HSET', KEYS[1], 'p:' .. ARGV[1], ARGV[4], '_', '1')
+            redis.call('EXPIRE', KEYS[1], ARGV[5])
+            redis.call('SADD', KEYS[2], ARGV[6])
+            return quantity
+            """, Long.class);
+
+    // ARGV: replace(0|1), rồi các bộ (variantId, quantity, stock, price), cuối cùng ttl(s), userId.
+    // Kiểm tra tồn kho cho mọi variant trước khi ghi → 0 nếu thành công, ngược lại variantId không đủ hàng
+    private static final RedisScript<Long> ADD_ITEMS_SCRIPT = new DefaultRedisScript<>("""
+            local replace = ARGV[1] == '1'
+            local last = #ARGV - 2
+            for i = 2, last, 4 do
+                local current = 0
+                if not replace then
+                    current = tonumber(redis.call('HGET', KEYS[1], 'q:' .. ARGV[i]) or '0')
+                end
+                if current + tonumber(ARGV[i + 1]) > tonumber(ARGV[i + 2]) then
+                    return tonumber(ARGV[i])
+                end
+            end
+            if replace then
+                for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                    local prefix = string.sub(field, 1, 2)
+                    if prefix == 'q:' or prefix == 'p:' then
+                        redis.call('HDEL', KEYS[1], field)
+                    end
+                end
+            end
+            for i = 2, last, 4 do
+                redis.call('HINCRBY', KEYS[1], 'q:' .. ARGV[i], ARGV[i + 1])
+                redis.call('HSET', KEYS[1], 'p:' .. ARGV[i], ARGV[i + 3])
+            end
+            redis.call('HSET', KEYS[1], '_', '1')
+            redis.call('EXPIRE', KEYS[1], ARGV[#ARGV - 1])
+            redis.call('SADD', KEYS[2], ARGV[#ARGV])
+            return 0
+            """, Long.class);
+
+    // ARGV: variantId, quantity, price, ttl(s), userId → 0 nếu item không có trong giỏ
+    private static final RedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[1], 'q:' .. ARGV[1]) == 0 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], 'q:' .. ARGV[1], ARGV[2], 'p:' .. ARGV[1], ARGV[3])
+            redis.call('EXPIRE', KEYS[1], ARGV[4])
+            redis.call('SADD', KEYS[2], ARGV[5])
+            return 1
+            """, Long.class);
+
+    // ARGV: variantId, ttl(s), userId → 0 nếu item không có trong giỏ
+    private static final RedisScript<Long> REMOVE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HDEL', KEYS[1], 'q:' .. ARGV[1], 'p:' .. ARGV[1]) == 0 then
+                return 0
+            end
+            redis.call('EXPIRE', KEYS[1], ARGV[2])
+            redis.call('SADD', KEYS[2], ARGV[3])
+            return 1
+            """, Long.class);
+
+    // ARGV: ttl(s), userId — xóa mọi item, giữ id giỏ và dấu đã nạp
+    private static final RedisScript<Long> CLEAR_SCRIPT = new DefaultRedisScript<>("""
+            for _, field in ipairs(redis.call('HKEYS', KEYS[1])) do
+                local prefix = string.sub(field, 1, 2)
+                if prefix == 'q:' or prefix == 'p:' then
+                    redis.call('HDEL', KEYS[1], field)
+                end
+            end
+            redis.call('HSET', KEYS[1], '_', '1')
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            redis.call('SADD', KEYS[2], ARGV[2])
+            return 1
+            """, Long.class);
+
+    // Nạp giỏ từ DB nếu hash chưa có (lần đầu, hoặc đã hết hạn). ARGV: ttl(s), rồi các cặp field/value
+    private static final RedisScript<Long> LOAD_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                return 0
+            end
+            redis.call('HSET', KEYS[1], unpack(ARGV, 2))
+            redis.call('EXPIRE', KEYS[1], ARGV[1])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final CartRepository cartRepository;
+    private final UserRepository userRepository;
+    private final ProductVariantRepository variantRepository;
+    private final CartResponseBuilder cartResponseBuilder;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${cart.redis.ttl:30d}")
+    private Duration cartTtl;
+
+    @Override
+    public CartResponse getCart(Long userId) {
+        return buildCartResponse(loadEntries(userId));
+    }
+
+    @Override
+    public CartResponse addToCart(Long userId, AddToCartRequest request) {
+        ProductVariant variant = variantRepository.findById(request.getVariantId())
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", request.getVariantId()));
+
+        // Kiểm tra stock
+        if (variant.getStock() < request.getQuantity()) {
+            throw new RuntimeException("Số lượng sản phẩm không đủ. Còn lại: " + variant.getStock());
+        }
+
+        ensureLoaded(userId);
+        Long quantity = execute(ADD_SCRIPT, userId, variant.getId(), request.getQuantity(), variant.getStock(),
+                variant.getPrice().toPlainString());
+        if (quantity == null || quantity < 0) {
+            throw new RuntimeException("Số lượng vượt quá tồn kho. Còn lại: " + variant.getStock());
+        }
+        return getCart(userId);
+    }
+
+    @Override
+    public CartResponse addItems(Long userId, Map<Long, Integer> quantities, boolean replace) {
+        // Một IN-query cho mọi variant
+        Map<Long, ProductVariant> variants = quantities.isEmpty() ? Map.of()
+                : variantRepository.findWithProductByIdIn(quantities.keySet()).stream()
+                        .collect(Collectors.toMap(ProductVariant::getId, Function.identity()));
+        List<Object> args = new ArrayList<>();
+        args.add(replace ? 1 : 0);
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            ProductVariant variant = variants.get(entry.getKey());
+            if (variant == null) {
+                throw new ResourceNotFoundException("ProductVariant", entry.getKey());
+            }
+            args.add(variant.getId());
+            args.add(entry.getValue());
+            args.add(variant.getStock());
+            args.add(variant.getPrice().toPlainString());
+        }
+
+        ensureLoaded(userId);
+        Long rejected = execute(ADD_ITEMS_SCRIPT, userId, args.toArray());
+        if (rejected != null && rejected != 0) {
+            ProductVariant variant = variants.get(rejected);
+            throw new RuntimeException("Sản phẩm " + variant.getSku() + " vượt quá tồn kho. Còn lại: " + variant.getStock());
+        }
+        return getCart(userId);
+    }
+
+    @Override
+    public CartResponse updateCartItem(Long userId, Long variantId, UpdateCartItemRequest request) {
+        ensureLoaded(userId);
+        if (!Boolean.TRUE.equals(stringRedisTemplate.opsForHash().hasKey(cartKey(userId), QUANTITY_PREFIX + variantId))) {
+            throw new ResourceNotFoundException("CartItem", variantId);
+        }
+        ProductVariant variant = variantRepository.findById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("CartItem", variantId));
+
+        // Kiểm tra stock
+        if (request.getQuantity() > variant.getStock()) {
+            throw new RuntimeException("Số lượng vượt quá tồn kho. Còn lại: " + variant.getStock());
+        }
+
+        // Cập nhật giá mới nhất
+        Long updated = execute(UPDATE_SCRIPT, userId, variantId, request.getQuantity(), variant.getPrice().toPlainString());
+        if (updated == null || updated == 0) {
+            throw new ResourceNotFoundException("CartItem", variantId);
+        }
+        return getCart(userId);
+    }
+
+    @Override
+    public CartResponse removeCartItem(Long userId, Long variantId) {
+        ensureLoaded(userId);
+        Long removed = execute(REMOVE_SCRIPT, userId, variantId);
+        if (removed == null || removed == 0) {
+            throw new ResourceNotFoundException("CartItem", variantId);
+        }
+        return getCart(userId);
+    }
+
+    @Override
+    public CartResponse clearCart(Long userId) {
+        ensureLoaded(userId);
+        execute(CLEAR_SCRIPT, userId);
+        return getCart(userId);
+    }
+
+    // Chạy trong transaction của checkout: giỏ trên Redis là bản đúng, DB được ghi theo cho checkout đọc
+    @Override
+    public void flushToDatabase(Long userId) {
+        persist(userId);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.redis.flush-interval:PT5S}",
+            initialDelayString = "${cart.redis.flush-interval:PT5S}")
+    public void flushDirtyCarts() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        // Mỗi lượt chỉ xử lý số giỏ đang bẩn lúc bắt đầu, để giỏ lỗi được đánh dấu lại không bị lấy ra lặp vô hạn
+        Long pending = stringRedisTemplate.opsForSet().size(DIRTY_KEY);
+        long remaining = pending != null ? pending : 0;
+        while (remaining > 0) {
+            // SPOP trước khi đọc giỏ: thao tác xảy ra trong lúc ghi sẽ đánh dấu bẩn lại và được ghi ở lượt sau
+            List<String> userIds = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, Math.min(remaining, FLUSH_BATCH_SIZE));
+            if (userIds == null || userIds.isEmpty()) {
+                return;
+            }
+            remaining -= userIds.size();
+            for (String userId : userIds) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> persist(Long.valueOf(userId)));
+                } catch (Exception e) {
+                    log.warn("Không ghi được giỏ hàng của user {} xuống DB, thử lại lần sau: {}", userId, e.getMessage());
+                    stringRedisTemplate.opsForSet().add(DIRTY_KEY, userId);
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flushDirtyCarts();
+    }
+
+    // Đồng bộ cart_items theo hash hiện tại: xóa item đã bỏ, sửa item đổi số lượng/giá, thêm item mới
+    private void persist(Long userId) {
+        Map<Object, Object> raw = stringRedisTemplate.opsForHash().entries(cartKey(userId));
+        if (raw.isEmpty()) {
+            return; // hash hết hạn hoặc chưa từng nạp: DB vẫn là bản cuối cùng
+        }
+        CartEntries entries = CartEntries.parse(raw);
+
+        Cart cart = cartRepository.findByUserIdForUpdate(userId).orElse(null);
+        boolean created = cart == null;
+        if (created) {
+            cart = Cart.builder().user(userRepository.getReferenceById(userId)).build();
+        }
+
+        Map<Long, Integer> quantities = new HashMap<>(entries.quantities());
+        boolean changed = false;
+        Iterator<CartItem> iterator = cart.getItems().iterator();
+        while (iterator.hasNext()) {
+            CartItem item = iterator.next();
+            Long variantId = item.getVariant().getId();
+            Integer quantity = quantities.remove(variantId);
+            if (quantity == null) {
+                iterator.remove(); // orphanRemoval xóa dòng
+                changed = true;
+                continue;
+            }
+            BigDecimal price = entries.prices().get(variantId);
+            if (!quantity.equals(item.getQuantity()) || (price != null && price.compareTo(item.getPrice()) != 0)) {
+                item.setQuantity(quantity);
+                if (price != null) {
+                    item.setPrice(price);
+                }
+                changed = true;
+            }
+        }
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            BigDecimal price = entries.prices().get(entry.getKey());
+            if (price == null) {
+                continue;
+            }
+            cart.getItems().add(CartItem.builder()
+                    .cart(cart)
+                    .variant(variantRepository.getReferenceById(entry.getKey()))
+                    .quantity(entry.getValue())
+                    .price(price)
+                    .build());
+            changed = true;
+        }
+
+        if (created || changed) {
+            cart.setUpdatedAt(LocalDateTime.now());
+            cart = cartRepository.save(cart);
+        }
+        // Giỏ mới, hoặc giỏ cũ đã bị job dọn giỏ xóa và được tạo lại
+        if (!cart.getId().equals(entries.cartId())) {
+            stringRedisTemplate.opsForHash().put(cartKey(userId), CART_ID_FIELD, String.valueOf(cart.getId()));
+        }
+    }
+
+    private CartEntries loadEntries(Long userId) {
+        ensureLoaded(userId);
+        return CartEntries.parse(stringRedisTemplate.opsForHash().entries(cartKey(userId)));
+    }
+
+    // Hash chưa có (giỏ mới, hoặc đã hết hạn trên Redis) → nạp từ carts/cart_items
+    private void ensureLoaded(Long userId) {
+        String key = cartKey(userId);
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            return;
+        }
+        List<String> args = new ArrayList<>();
+        args.add(String.valueOf(cartTtl.toSeconds()));
+        args.add(LOADED_FIELD);
+        args.add("1");
+        cartRepository.findByUserId(userId).ifPresent(cart -> {
+            args.add(CART_ID_FIELD);
+            args.add(String.valueOf(cart.getId()));
+            for (CartItem item : cart.getItems()) {
+                Long variantId = item.getVariant().getId();
+                args.add(QUANTITY_PREFIX + variantId);
+                args.add(String.valueOf(item.getQuantity()));
+                args.add(PRICE_PREFIX + variantId);
+                args.add(item.getPrice().toPlainString());
+            }
+        });
+        stringRedisTemplate.execute(LOAD_SCRIPT, List.of(key), args.toArray());
+    }
+
+    private Long execute(RedisScript<Long> script, Long userId, Object... args) {
+        Object[] argv = new Object[args.length + 2];
+        for (int i = 0; i < args.length; i++) {
+            argv[i] = String.valueOf(args[i]);
+        }
+        argv[args.length] = String.valueOf(cartTtl.toSeconds());
+        argv[args.length + 1] = String.valueOf(userId);
+        return stringRedisTemplate.execute(script, List.of(cartKey(userId), DIRTY_KEY), argv);
+    }
+
+    private CartResponse buildCartResponse(CartEntries entries) {
+        List<CartItemResponse> items = cartResponseBuilder.buildItems(entries.quantities(), entries.prices());
+        return cartResponseBuilder.build(entries.cartId(), items, null);
+    }
+
+    private String cartKey(Long userId) {
+        return KEY_PREFIX + userId;
+    }
+
+    private record CartEntries(Long cartId, Map<Long, Integer> quantities, Map<Long, BigDecimal> prices) {
+
+        static CartEntries parse(Map<Object, Object> raw) {
+            Long cartId = null;
+            Map<Long, Integer> quantities = new HashMap<>();
+            Map<Long, BigDecimal> prices = new HashMap<>();
+            for (Map.Entry<Object, Object> entry : raw.entrySet()) {
+                String field = (String) entry.getKey();
+                String value = (String) entry.getValue();
+                if (field.equals(CART_ID_FIELD)) {
+                    cartId = Long.valueOf(value);
+                } else if (field.startsWith(QUANTITY_PREFIX)) {
+                    quantities.put(Long.valueOf(field.substring(QUANTITY_PREFIX.length())), Integer.valueOf(value));
+                } else if (field.startsWith(PRICE_PREFIX)) {
+                    prices.put(Long.valueOf(field.substring(PRICE_PREFIX.length())), new BigDecimal(value));
+                }
+            }
+            return new CartEntries(cartId, quantities, prices);
+        }
+    }
+}
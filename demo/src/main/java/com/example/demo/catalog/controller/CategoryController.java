@@ -0,0 +1,46 @@
+package com.example.demo.catalog.controller;
+
+import com.example.demo.catalog.dto.CategoryResponse;
+import com.example.demo.catalog.service.CatalogVersionService;
+import com.example.demo.catalog.service.CategoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/categories")
+@RequiredArgsConstructor
+@Tag(name = "Category", description = "API danh mục sản phẩm")
+public class CategoryController {
+
+    private final CategoryService categoryService;
+    private final CatalogVersionService catalogVersionService;
+
+    @GetMapping
+    @Operation(summary = "Lấy cây danh mục")
+    public ResponseEntity<List<CategoryResponse>> getCategoryTree(WebRequest webRequest) {
+        String eTag = catalogVersionService.categoryETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(categoryService.getCategoryTree());
+    }
+
+    @GetMapping("/{slug}")
+    @Operation(summary = "Lấy danh mục theo slug (kèm danh mục con)")
+    public ResponseEntity<CategoryResponse> getCategoryBySlug(@PathVariable String slug, WebRequest webRequest) {
+        String eTag = catalogVersionService.categoryETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        return ResponseEntity.ok().eTag(eTag).body(categoryService.getCategoryBySlug(slug));
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.demo.catalog.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CategoryResponse {
+    private Long id;
+    private String name;
+    private String slug;
+    private String description;
+    private Long parentId;
+    @Builder.Default
+    private List<CategoryResponse> children = new ArrayList<>();
+}
@@ -10,13 +10,15 @@ import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "brands")
+@EntityListeners(BrandEntityListener.class)
 @Data
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
 public class Brand {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "brands_seq")
+    @SequenceGenerator(name = "brands_seq", sequenceName = "brands_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -0,0 +1,23 @@
+package com.example.demo.catalog.entity;
+
+import com.example.demo.catalog.event.BrandChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class BrandEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Brand brand) {
+        eventPublisher.publishEvent(new BrandChangedEvent(brand.getId()));
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.demo.catalog.event;
+
+// Phát ra khi một thương hiệu được tạo, sửa hoặc xóa
+public record BrandChangedEvent(Long brandId) {
+}
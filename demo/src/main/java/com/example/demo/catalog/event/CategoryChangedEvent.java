@@ -0,0 +1,5 @@
+package com.example.demo.catalog.event;
+
+// Phát ra khi một danh mục được tạo, sửa hoặc xóa
+public record CategoryChangedEvent(Long categoryId) {
+}
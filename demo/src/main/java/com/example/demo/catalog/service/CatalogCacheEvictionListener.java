@@ -0,0 +1,28 @@
+package com.example.demo.catalog.service;
+
+import com.example.demo.cache.CacheNames;
+import com.example.demo.cache.CacheService;
+import com.example.demo.catalog.event.BrandChangedEvent;
+import com.example.demo.catalog.event.CategoryChangedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+public class CatalogCacheEvictionListener {
+
+    private final CacheService cacheService;
+
+    // Tên danh mục nằm trong ProductResponse nên xóa toàn bộ cache chi tiết sản phẩm (danh mục hiếm khi đổi)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        cacheService.evictAll(CacheNames.CATEGORY_TREE);
+        cacheService.evictAll(CacheNames.PRODUCT_DETAIL);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChanged(BrandChangedEvent event) {
+        cacheService.evict(CacheNames.BRAND_NAME, event.brandId());
+    }
+}
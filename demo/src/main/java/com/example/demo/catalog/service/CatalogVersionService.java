@@ -0,0 +1,152 @@
+package com.example.demo.catalog.service;
+
+import com.example.demo.cache.CacheNames;
+import com.example.demo.cache.CacheService;
+import com.example.demo.catalog.event.BrandChangedEvent;
+import com.example.demo.catalog.event.CategoryChangedEvent;
+import com.example.demo.product.event.ProductChangedEvent;
+import com.example.demo.product.event.ProductImageChangedEvent;
+import com.example.demo.product.event.ProductStockChangedEvent;
+import com.example.demo.product.event.ProductsImportedEvent;
+import com.example.demo.product.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Version index cho ETag: kiểm tra If-None-Match chỉ đọc cache (L1/Redis), không chạm Postgres.
+// - sản phẩm: updatedAt của sản phẩm + bộ đếm riêng của sản phẩm (đánh giá, ảnh đổi mà không sửa dòng products)
+//   + version danh mục (tên danh mục nằm trong response)
+// - trang danh sách: bộ đếm catalog, tăng mỗi khi sản phẩm (kể cả tồn kho, ảnh)/danh mục/thương hiệu đổi
+// - danh mục: bộ đếm taxonomy, tăng khi danh mục/thương hiệu đổi
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CatalogVersionService {
+
+    private static final String COUNTER_PREFIX = "catalog:version:";
+    private static final String CATALOG = "catalog";
+    private static final String TAXONOMY = "taxonomy";
+    private static final String PRODUCT_PREFIX = "product:";
+
+    private final CacheService cacheService;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ProductRepository productRepository;
+
+    @Value("${cache.product-version.ttl:1h}")
+    private Duration productVersionTtl;
+
+    @Value("${cache.catalog-version.ttl:1m}")
+    private Duration catalogVersionTtl;
+
+    // null nếu không tính được (sản phẩm không tồn tại, Redis lỗi) → request xử lý bình thường, không có ETag
+    public String productETag(Long productId) {
+        try {
+            String productVersion = cacheService.get(CacheNames.PRODUCT_VERSION, productId, String.class,
+                    productVersionTtl, () -> productRepository.findUpdatedAtById(productId)
+                            .map(this::toVersion)
+                            .orElse(null));
+            if (productVersion == null) {
+                return null;
+            }
+            return "p" + productId + "-" + productVersion + "-" + counter(PRODUCT_PREFIX + productId)
+                    + "-" + counter(TAXONOMY);
+        } catch (Exception e) {
+            log.warn("Không tính được ETag cho sản phẩm {}: {}", productId, e.getMessage());
+            return null;
+        }
+    }
+
+    public String listingETag() {
+        String version = safeCounter(CATALOG);
+        return version != null ? "l-" + version : null;
+    }
+
+    public String categoryETag() {
+        String version = safeCounter(TAXONOMY);
+        return version != null ? "t-" + version : null;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        cacheService.evict(CacheNames.PRODUCT_VERSION, event.productId());
+        bump(PRODUCT_PREFIX + event.productId());
+        bump(CATALOG);
+    }
+
+    // Ảnh nằm trong chi tiết lẫn danh sách nhưng không đổi updated_at của sản phẩm
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductImageChanged(ProductImageChangedEvent event) {
+        bump(PRODUCT_PREFIX + event.productId());
+        bump(CATALOG);
+    }
+
+    // Trang danh sách hiện cả số lượng tồn kho nên mọi thay đổi tồn kho đều tăng bộ đếm catalog
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        cacheService.evict(CacheNames.PRODUCT_VERSION, event.productId());
+        bump(CATALOG);
+    }
+
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        cacheService.evictAll(CacheNames.PRODUCT_VERSION);
+        bump(CATALOG);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCategoryChanged(CategoryChangedEvent event) {
+        bump(TAXONOMY);
+        bump(CATALOG);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBrandChanged(BrandChangedEvent event) {
+        bump(TAXONOMY);
+        bump(CATALOG);
+    }
+
+    private String safeCounter(String name) {
+        try {
+            return counter(name);
+        } catch (Exception e) {
+            log.warn("Không đọc được version {}: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private String counter(String name) {
+        return cacheService.get(CacheNames.CATALOG_VERSION, name, String.class, catalogVersionTtl,
+                () -> {
+                    String key = COUNTER_PREFIX + name;
+                    // Khởi tạo bằng thời điểm hiện tại: nếu Redis mất dữ liệu, bộ đếm không quay về giá trị cũ đã phát ra
+                    stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(System.currentTimeMillis()));
+                    return stringRedisTemplate.opsForValue().get(key);
+                });
+    }
+
+    private void bump(String name) {
+        String key = COUNTER_PREFIX + name;
+        try {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(key, String.valueOf(System.currentTimeMillis())))) {
+                stringRedisTemplate.opsForValue().increment(key);
+            }
+        } catch (Exception e) {
+            log.warn("Không tăng được version {}: {}", name, e.getMessage());
+        }
+        cacheService.evict(CacheNames.CATALOG_VERSION, name);
+    }
+
+    private String toVersion(LocalDateTime updatedAt) {
+        long micros = updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + updatedAt.getNano() / 1_000;
+        return Long.toString(micros, 36);
+    }
+}
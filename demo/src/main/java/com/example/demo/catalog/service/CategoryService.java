@@ -0,0 +1,41 @@
+package com.example.demo.catalog.service;
+
+import com.example.demo.catalog.dto.CategoryResponse;
+import com.example.demo.exception.ResourceNotFoundException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class CategoryService {
+
+    private final CategoryTreeCache categoryTreeCache;
+
+    public List<CategoryResponse> getCategoryTree() {
+        return categoryTreeCache.getRoots().stream()
+                .map(this::mapToResponse)
+                .collect(Collectors.toList());
+    }
+
+    public CategoryResponse getCategoryBySlug(String slug) {
+        return categoryTreeCache.findBySlug(slug)
+                .map(this::mapToResponse)
+                .orElseThrow(() -> new ResourceNotFoundException("Category", "slug", slug));
+    }
+
+    private CategoryResponse mapToResponse(CategoryTreeCache.CategoryNode node) {
+        return CategoryResponse.builder()
+                .id(node.id())
+                .name(node.name())
+                .slug(node.slug())
+                .description(node.description())
+                .parentId(node.parentId())
+                .children(node.children().stream()
+                        .map(this::mapToResponse)
+                        .collect(Collectors.toList()))
+                .build();
+    }
+}
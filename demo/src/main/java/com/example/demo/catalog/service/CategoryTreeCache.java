@@ -0,0 +1,145 @@
+package com.example.demo.catalog.service;
+
+import com.example.demo.cache.CacheNames;
+import com.example.demo.cache.CacheService;
+import com.example.demo.catalog.entity.Category;
+import com.example.demo.catalog.repository.CategoryRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// Toàn bộ cây danh mục trong bộ nhớ: tra slug/id O(1), tập id con cháu tính sẵn cho mỗi node
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CategoryTreeCache {
+
+    private final CategoryRepository categoryRepository;
+    private final CacheService cacheService;
+
+    private volatile Tree tree;
+
+    public Optional<CategoryNode> findBySlug(String slug) {
+        return Optional.ofNullable(tree().bySlug.get(slug));
+    }
+
+    public Optional<CategoryNode> findById(Long id) {
+        return Optional.ofNullable(tree().byId.get(id));
+    }
+
+    public List<CategoryNode> getRoots() {
+        return tree().roots;
+    }
+
+    // Tăng mỗi lần nạp lại cây
+    public long getVersion() {
+        return tree().version;
+    }
+
+    // Thay đổi danh mục → CatalogCacheEvictionListener evict CATEGORY_TREE → mọi node (kể cả node này) nạp lại
+    @PostConstruct
+    void subscribe() {
+        cacheService.onInvalidation(CacheNames.CATEGORY_TREE, key -> refresh());
+    }
+
+    @Scheduled(fixedDelayString = "${catalog.category-tree.refresh-interval:PT10M}",
+               initialDelayString = "${catalog.category-tree.refresh-interval:PT10M}")
+    public synchronized void refresh() {
+        long version = tree == null ? 1 : tree.version + 1;
+        tree = load(version);
+    }
+
+    private Tree tree() {
+        Tree current = tree;
+        if (current == null) {
+            synchronized (this) {
+                if (tree == null) {
+                    tree = load(1);
+                }
+                current = tree;
+            }
+        }
+        return current;
+    }
+
+    // Một query findAll rồi nối cây trong bộ nhớ, thay vì findByParentId theo từng tầng
+    private Tree load(long version) {
+        List<Category> categories = categoryRepository.findAll();
+        Map<Long, Category> byId = new HashMap<>();
+        Map<Long, List<Category>> childrenByParent = new HashMap<>();
+        for (Category category : categories) {
+            byId.put(category.getId(), category);
+        }
+
+        List<Category> rootCategories = new ArrayList<>();
+        for (Category category : categories) {
+            Long parentId = category.getParent() != null ? category.getParent().getId() : null;
+            if (parentId == null || !byId.containsKey(parentId)) {
+                rootCategories.add(category);
+            } else {
+                childrenByParent.computeIfAbsent(parentId, k -> new ArrayList<>()).add(category);
+            }
+        }
+
+        Tree result = new Tree(version);
+        Set<Long> visited = new HashSet<>();
+        List<CategoryNode> roots = new ArrayList<>();
+        for (Category root : rootCategories) {
+            roots.add(buildNode(root, null, childrenByParent, visited, result));
+        }
+        result.roots = Collections.unmodifiableList(roots);
+        log.info("Đã nạp cây danh mục: {} danh mục (version {})", categories.size(), version);
+        return result;
+    }
+
+    private CategoryNode buildNode(Category category, Long parentId, Map<Long, List<Category>> childrenByParent,
+                                   Set<Long> visited, Tree result) {
+        visited.add(category.getId());
+        List<CategoryNode> children = new ArrayList<>();
+        Set<Long> subtreeIds = new HashSet<>();
+        subtreeIds.add(category.getId());
+        for (Category child : childrenByParent.getOrDefault(category.getId(), List.of())) {
+            if (visited.contains(child.getId())) {
+                continue; // dữ liệu lỗi có vòng lặp parent
+            }
+            CategoryNode childNode = buildNode(child, category.getId(), childrenByParent, visited, result);
+            children.add(childNode);
+            subtreeIds.addAll(childNode.subtreeIds());
+        }
+
+        CategoryNode node = new CategoryNode(category.getId(), category.getName(), category.getSlug(),
+                category.getDescription(), parentId, Collections.unmodifiableList(children),
+                Collections.unmodifiableSet(subtreeIds));
+        result.byId.put(node.id(), node);
+        if (node.slug() != null) {
+            result.bySlug.put(node.slug(), node);
+        }
+        return node;
+    }
+
+    public record CategoryNode(Long id, String name, String slug, String description, Long parentId,
+                               List<CategoryNode> children, Set<Long> subtreeIds) {
+    }
+
+    private static class Tree {
+        private final long version;
+        private final Map<Long, CategoryNode> byId = new HashMap<>();
+        private final Map<String, CategoryNode> bySlug = new HashMap<>();
+        private List<CategoryNode> roots = List.of();
+
+        private Tree(long version) {
+            this.version = version;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.common.id;
+
+// Base32 của Crockford: bỏ I, L, O, U để tránh đọc nhầm; id 64-bit dài tối đa 13 ký tự
+public final class CrockfordBase32 {
+
+    private static final char[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private CrockfordBase32() {
+    }
+
+    public static String encode(long value) {
+        if (value == 0) {
+            return "0";
+        }
+        char[] buffer = new char[13];
+        int position = buffer.length;
+        long remaining = value;
+        while (remaining != 0) {
+            buffer[--position] = ALPHABET[(int) (remaining & 31)];
+            remaining >>>= 5;
+        }
+        return new String(buffer, position, buffer.length - position);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.demo.common.id;
+
+// Sinh id duy nhất trên toàn cụm mà không cần DB hay khóa; thay implementation bằng bean khác nếu cần
+public interface IdGenerator {
+
+    long nextId();
+
+    // Id dạng chữ ngắn, dễ đọc (Crockford base32), vd. mã đơn hàng, SKU
+    default String nextCode(String prefix) {
+        return prefix + CrockfordBase32.encode(nextId());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.demo.common.id;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Id kiểu Snowflake 64 bit: 41 bit thời gian (ms từ EPOCH) | 10 bit node id | 12 bit sequence.
+// Trạng thái (thời gian, sequence) gói trong một AtomicLong và cập nhật bằng CAS nên không cần khóa;
+// tối đa 4096 id/ms mỗi node, hết sequence thì mượn ms kế tiếp thay vì chờ
+@Component
+@Slf4j
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long nodeId;
+    private final LongSupplier clock;
+    // (ms từ EPOCH << SEQUENCE_BITS) | sequence của id cấp gần nhất
+    private final AtomicLong state = new AtomicLong();
+
+    // Profile được phép tự lấy node id từ hostname (một instance, chạy thử)
+    private static final Profiles DEV_PROFILES = Profiles.of("dev", "local", "test");
+
+    @Autowired
+    public SnowflakeIdGenerator(@Value("${id-generator.node-id:-1}") long configuredNodeId, Environment environment) {
+        this(resolveNodeId(configuredNodeId, environment), System::currentTimeMillis);
+    }
+
+    // clock: epoch millis, tách ra để test giả lập đồng hồ lùi
+    SnowflakeIdGenerator(long nodeId, LongSupplier clock) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalStateException("id-generator.node-id phải trong khoảng 0.." + MAX_NODE_ID);
+        }
+        this.nodeId = nodeId;
+        this.clock = clock;
+        log.info("Snowflake id generator dùng node id {}", nodeId);
+    }
+
+    private static long resolveNodeId(long configuredNodeId, Environment environment) {
+        if (configuredNodeId < 0 && !environment.acceptsProfiles(DEV_PROFILES)) {
+            // Hash hostname về 1024 giá trị dễ trùng giữa các pod => hai node cấp trùng id, không để chạy như vậy
+            throw new IllegalStateException("Chưa cấu hình id-generator.node-id (NODE_ID); "
+                    + "chỉ profile dev/local/test mới được lấy node id từ hostname");
+        }
+        return configuredNodeId >= 0 ? configuredNodeId : nodeIdFromHostname();
+    }
+
+    @Override
+    public long nextId() {
+        while (true) {
+            long previous = state.get();
+            long previousMillis = previous >>> SEQUENCE_BITS;
+            long now = clock.getAsLong() - EPOCH;
+
+            long next;
+            if (now > previousMillis) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // Cùng ms, hoặc đồng hồ lùi: tiếp tục từ mốc cũ để id luôn tăng
+                long sequence = (previous & SEQUENCE_MASK) + 1;
+                next = sequence > SEQUENCE_MASK
+                        ? (previousMillis + 1) << SEQUENCE_BITS
+                        : (previousMillis << SEQUENCE_BITS) | sequence;
+            }
+            if (state.compareAndSet(previous, next)) {
+                return ((next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS))
+                        | (nodeId << SEQUENCE_BITS)
+                        | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    // Chỉ dùng ở profile dev/local/test; triển khai thật phải cấu hình id-generator.node-id khác nhau cho mỗi node
+    private static long nodeIdFromHostname() {
+        try {
+            String hostname = InetAddress.getLocalHost().getHostName();
+            long derived = Math.floorMod(hostname.hashCode(), MAX_NODE_ID + 1);
+            log.warn("Chưa cấu hình id-generator.node-id, lấy {} từ hostname {}", derived, hostname);
+            return derived;
+        } catch (Exception e) {
+            log.warn("Chưa cấu hình id-generator.node-id và không đọc được hostname, dùng 0");
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.demo.common.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+// Trang theo cursor: không có total count, client gửi lại nextCursor để lấy trang tiếp
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    public static final int MAX_SIZE = 100;
+
+    @Builder.Default
+    private List<T> items = new ArrayList<>();
+    private String nextCursor;
+    private boolean hasNext;
+
+    public static int clampSize(int size) {
+        return Math.min(Math.max(size, 1), MAX_SIZE);
+    }
+
+    // rows được query với limit = size + 1 để biết còn trang sau hay không
+    public static <E, T> CursorPage<T> of(List<E> rows, int size,
+                                          Function<E, Cursor> cursorOf,
+                                          Function<List<E>, List<T>> mapper) {
+        boolean hasNext = rows.size() > size;
+        List<E> pageRows = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursorOf.apply(pageRows.get(pageRows.size() - 1)).encode() : null;
+        return CursorPage.<T>builder()
+                .items(mapper.apply(pageRows))
+                .nextCursor(nextCursor)
+                .hasNext(hasNext)
+                .build();
+    }
+}
@@ -39,6 +39,8 @@ public class SecurityConfig {
                         .requestMatchers("PUT", "/api/products/**").authenticated()
                         .requestMatchers("DELETE", "/api/products/**").authenticated()
                         .requestMatchers("PATCH", "/api/products/**").authenticated()
+                        // Giỏ hàng của khách (định danh bằng token X-Cart-Token)
+                        .requestMatchers("/api/guest-cart/**").permitAll()
                         // Cart và Order endpoints cần đăng nhập
                         .requestMatchers("/api/cart/**").authenticated()
                         .requestMatchers("/api/orders/**").authenticated()
@@ -0,0 +1,17 @@
+package com.example.demo.exception;
+
+import java.util.List;
+
+// Một hoặc nhiều variant không đủ stock khi giữ hàng; skus là danh sách SKU bị thiếu
+public class InsufficientStockException extends RuntimeException {
+    private final List<String> skus;
+
+    public InsufficientStockException(List<String> skus) {
+        super("Sản phẩm " + String.join(", ", skus) + " không đủ số lượng");
+        this.skus = List.copyOf(skus);
+    }
+
+    public List<String> getSkus() {
+        return skus;
+    }
+}
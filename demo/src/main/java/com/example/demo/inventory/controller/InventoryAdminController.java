@@ -0,0 +1,56 @@
+package com.example.demo.inventory.controller;
+
+import com.example.demo.inventory.dto.HotStockResponse;
+import com.example.demo.inventory.dto.StockBucketsRequest;
+import com.example.demo.inventory.dto.StockBucketsResponse;
+import com.example.demo.inventory.service.InventoryService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// /api/v1/admin/** chỉ ADMIN truy cập được (SecurityConfig)
+@RestController
+@RequestMapping("/api/v1/admin/inventory")
+@RequiredArgsConstructor
+@Tag(name = "Inventory Admin", description = "API quản trị tồn kho")
+public class InventoryAdminController {
+
+    private final InventoryService inventoryService;
+
+    @GetMapping("/variants/{variantId}/hot-stock")
+    @Operation(summary = "Trạng thái stock hot của variant")
+    public ResponseEntity<HotStockResponse> getHotStock(@PathVariable Long variantId) {
+        return ResponseEntity.ok(inventoryService.getHotStock(variantId));
+    }
+
+    @PutMapping("/variants/{variantId}/hot-stock")
+    @Operation(summary = "Bật/tắt stock hot cho variant",
+            description = "Bật: stock khả dụng giữ trên Redis (bật lại để nạp lại counter từ DB). Tắt: ghi hết phần đã giữ về DB rồi xóa counter")
+    public ResponseEntity<HotStockResponse> setHotStock(@PathVariable Long variantId,
+                                                        @RequestParam boolean enabled) {
+        return ResponseEntity.ok(inventoryService.setHotStock(variantId, enabled));
+    }
+
+    @GetMapping("/variants/{variantId}/buckets")
+    @Operation(summary = "Stock từng bucket của variant")
+    public ResponseEntity<StockBucketsResponse> getStockBuckets(@PathVariable Long variantId) {
+        return ResponseEntity.ok(inventoryService.getStockBuckets(variantId));
+    }
+
+    @PutMapping("/variants/{variantId}/buckets")
+    @Operation(summary = "Chia stock của variant thành nhiều bucket",
+            description = "Mỗi checkout chỉ khóa một bucket nên N bucket cho tối đa N checkout song song trên cùng variant. 1: gộp lại")
+    public ResponseEntity<StockBucketsResponse> setStockBuckets(@PathVariable Long variantId,
+                                                                @Valid @RequestBody StockBucketsRequest request) {
+        return ResponseEntity.ok(inventoryService.setStockBuckets(variantId, request.getBucketCount()));
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotStockResponse {
+    private Long variantId;
+    private String sku;
+    private Boolean hotStock;
+    private Integer stock;          // product_variants.stock (đã trừ các reservation đã ghi về)
+    private Long availableInRedis;  // counter trên Redis, null nếu variant không ở chế độ hot
+}
@@ -0,0 +1,20 @@
+package com.example.demo.inventory.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBucketsRequest {
+    @NotNull(message = "Số bucket không được để trống")
+    @Min(value = 1, message = "Số bucket phải lớn hơn 0")
+    @Max(value = 64, message = "Tối đa 64 bucket")
+    private Integer bucketCount; // 1: gộp lại thành một dòng
+}
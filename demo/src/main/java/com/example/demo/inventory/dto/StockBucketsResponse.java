@@ -0,0 +1,20 @@
+package com.example.demo.inventory.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBucketsResponse {
+    private Long variantId;
+    private String sku;
+    private Integer bucketCount;   // 0: stock nằm trên một dòng product_variants
+    private Integer stock;         // tổng stock hiện tại
+    private List<Integer> buckets; // stock từng bucket theo bucket_no
+}
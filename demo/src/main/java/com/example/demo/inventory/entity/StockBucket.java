@@ -0,0 +1,36 @@
+package com.example.demo.inventory.entity;
+
+import com.example.demo.product.entity.ProductVariant;
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Một phần stock của variant được chia bucket (ProductVariant.bucketCount > 1): checkout khóa một bucket
+// thay vì dòng product_variants, nên N checkout cùng variant chạy song song trên N dòng.
+// product_variants.stock là tổng các bucket, được StockBucketRollup cập nhật định kỳ
+@Entity
+@Table(name = "stock_buckets", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_bucket_variant_no", columnNames = {"variant_id", "bucket_no"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockBucket {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_buckets_seq")
+    @SequenceGenerator(name = "stock_buckets_seq", sequenceName = "stock_buckets_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "variant_id", nullable = false)
+    private ProductVariant variant;
+
+    @Column(name = "bucket_no", nullable = false)
+    private Integer bucketNo; // 0..bucketCount-1
+
+    @Column(nullable = false)
+    private Integer stock;
+}
@@ -22,7 +22,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class StockReservation {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "stock_reservations_seq")
+    @SequenceGenerator(name = "stock_reservations_seq", sequenceName = "stock_reservations_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -40,6 +41,12 @@ public class StockReservation {
     @Builder.Default
     private ReservationStatus status = ReservationStatus.PENDING;
 
+    // false: reservation giữ hàng trên Redis (variant hot), chưa trừ vào product_variants.stock.
+    // Stock khả dụng của variant hot luôn là stock - tổng quantity các reservation chưa áp dụng
+    @Column(name = "stock_applied")
+    @Builder.Default
+    private Boolean stockApplied = true;
+
     @Column(nullable = false)
     private LocalDateTime expiresAt; // Thời gian hết hạn reservation
 
@@ -0,0 +1,8 @@
+package com.example.demo.inventory.repository;
+
+// Projection reservation chưa áp dụng mà reconciler nhận về
+public interface ReservationQuantityView {
+    Long getId();
+    Long getVariantId();
+    Integer getQuantity();
+}
@@ -0,0 +1,67 @@
+package com.example.demo.inventory.repository;
+
+import com.example.demo.inventory.entity.StockBucket;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface StockBucketRepository extends JpaRepository<StockBucket, Long> {
+
+    @Query("SELECT b FROM StockBucket b WHERE b.variant.id = :variantId ORDER BY b.bucketNo")
+    List<StockBucket> findByVariantId(@Param("variantId") Long variantId);
+
+    // Khóa mọi bucket của variant theo bucket_no (đường dự phòng và khi chia lại bucket)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StockBucket b WHERE b.variant.id = :variantId ORDER BY b.bucketNo")
+    List<StockBucket> findByVariantIdForUpdate(@Param("variantId") Long variantId);
+
+    // Trừ từ một bucket đủ hàng, duyệt vòng tròn bắt đầu từ bucket :start (ngẫu nhiên) để các checkout tỏa đều.
+    // SKIP LOCKED: bucket đang bị checkout khác khóa thì chuyển sang bucket kế tiếp thay vì chờ. 0 nếu không lấy được
+    @Modifying
+    @Query(value = "WITH candidate AS (SELECT id FROM stock_buckets WHERE variant_id = :variantId AND stock >= :quantity " +
+                   "ORDER BY (bucket_no + :bucketCount - :start) % :bucketCount LIMIT 1 FOR NO KEY UPDATE SKIP LOCKED) " +
+                   "UPDATE stock_buckets b SET stock = b.stock - :quantity FROM candidate c WHERE b.id = c.id",
+           nativeQuery = true)
+    int decreaseAnyBucket(@Param("variantId") Long variantId, @Param("quantity") int quantity,
+                          @Param("start") int start, @Param("bucketCount") int bucketCount);
+
+    // Trả hàng vào bucket ít hàng nhất đang rảnh, để các bucket không lệch nhau dần. 0 nếu mọi bucket đang bị khóa
+    @Modifying
+    @Query(value = "WITH candidate AS (SELECT id FROM stock_buckets WHERE variant_id = :variantId " +
+                   "ORDER BY stock, bucket_no LIMIT 1 FOR NO KEY UPDATE SKIP LOCKED) " +
+                   "UPDATE stock_buckets b SET stock = b.stock + :quantity FROM candidate c WHERE b.id = c.id",
+           nativeQuery = true)
+    int increaseAnyBucket(@Param("variantId") Long variantId, @Param("quantity") int quantity);
+
+    @Modifying
+    @Query(value = "UPDATE stock_buckets SET stock = stock + :quantity " +
+                   "WHERE variant_id = :variantId AND bucket_no = :bucketNo",
+           nativeQuery = true)
+    int increaseBucket(@Param("variantId") Long variantId, @Param("bucketNo") int bucketNo,
+                       @Param("quantity") int quantity);
+
+    @Modifying
+    @Query("DELETE FROM StockBucket b WHERE b.variant.id = :variantId")
+    int deleteByVariantId(@Param("variantId") Long variantId);
+
+    // Ghi tổng các bucket của các variant :ids ('{1,2}') vào product_variants.stock (chỉ dòng lệch),
+    // trả về product_id của các variant đã đổi
+    @Query(value = "UPDATE product_variants v SET stock = s.total " +
+                   "FROM (SELECT variant_id, CAST(SUM(stock) AS int) AS total FROM stock_buckets " +
+                   "WHERE variant_id = ANY(CAST(:ids AS bigint[])) GROUP BY variant_id) s " +
+                   "WHERE v.id = s.variant_id AND v.stock <> s.total RETURNING v.product_id",
+           nativeQuery = true)
+    List<Long> rollupVariantStock(@Param("ids") String ids);
+
+    // Như trên cho mọi variant đang chia bucket: lưới an toàn chạy thưa, cho các lần đánh dấu bị mất khi Redis lỗi
+    @Query(value = "UPDATE product_variants v SET stock = s.total " +
+                   "FROM (SELECT variant_id, CAST(SUM(stock) AS int) AS total FROM stock_buckets GROUP BY variant_id) s " +
+                   "WHERE v.id = s.variant_id AND v.bucket_count > 1 AND v.stock <> s.total RETURNING v.product_id",
+           nativeQuery = true)
+    List<Long> rollupAllVariantStock();
+}
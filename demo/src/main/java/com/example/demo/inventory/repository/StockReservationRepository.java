@@ -16,6 +16,7 @@ import java.util.Optional;
 public interface StockReservationRepository extends JpaRepository<StockReservation, Long> {
     List<StockReservation> findByOrder(Order order);
     List<StockReservation> findByVariantAndStatus(ProductVariant variant, ReservationStatus status);
+    boolean existsByVariant_IdAndStockAppliedFalse(Long variantId);
     
     @Query("SELECT sr FROM StockReservation sr WHERE sr.expiresAt < :now AND sr.status = 'PENDING'")
     List<StockReservation> findExpiredReservations(@Param("now") LocalDateTime now);
@@ -23,5 +24,41 @@ public interface StockReservationRepository extends JpaRepository<StockReservati
     @Modifying
     @Query("UPDATE StockReservation sr SET sr.status = :status WHERE sr.id = :id")
     int updateStatus(@Param("id") Long id, @Param("status") ReservationStatus status);
+
+    // Đánh dấu đã áp dụng; 0 nếu reconciler (hoặc lần hủy khác) đã áp dụng trước. Chờ khóa dòng nếu reconciler đang giữ
+    @Modifying
+    @Query(value = "UPDATE stock_reservations SET stock_applied = true WHERE id = :id AND stock_applied = false",
+           nativeQuery = true)
+    int markStockApplied(@Param("id") Long id);
+
+    // Các variant còn reservation chưa áp dụng (partial index idx_reservation_unapplied)
+    @Query(value = "SELECT DISTINCT variant_id FROM stock_reservations WHERE stock_applied = false " +
+                   "ORDER BY variant_id LIMIT :limit",
+           nativeQuery = true)
+    List<Long> findVariantsWithUnappliedReservations(@Param("limit") int limit);
+
+    // Nhận tối đa :limit reservation chưa áp dụng của các variant (đã khóa trước), đánh dấu đã áp dụng và trả về
+    // từng reservation. SKIP LOCKED: bỏ qua reservation đang bị lần hủy đơn giữ (nó tự đánh dấu đã áp dụng)
+    @Query(value = "WITH claimed AS (SELECT id, variant_id, quantity FROM stock_reservations " +
+                   "WHERE stock_applied = false AND variant_id = ANY(CAST(:variantIds AS bigint[])) " +
+                   "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED), " +
+                   "marked AS (UPDATE stock_reservations r SET stock_applied = true FROM claimed c WHERE r.id = c.id) " +
+                   "SELECT id, variant_id AS \"variantId\", quantity FROM claimed",
+           nativeQuery = true)
+    List<ReservationQuantityView> claimUnappliedReservations(@Param("variantIds") String variantIds,
+                                                             @Param("limit") int limit);
+
+    // Trả reservation đã nhận về trạng thái chưa áp dụng (variant bị reconciler từ chối), để lần sau thử lại
+    @Modifying
+    @Query(value = "UPDATE stock_reservations SET stock_applied = false WHERE id = ANY(CAST(:ids AS bigint[]))",
+           nativeQuery = true)
+    int unmarkStockApplied(@Param("ids") String ids);
+
+    // Stock khả dụng của variant hot, tính lại từ DB khi counter trên Redis mất (Redis restart / bị xóa)
+    @Query(value = "SELECT v.stock - COALESCE((SELECT SUM(r.quantity) FROM stock_reservations r " +
+                   "WHERE r.variant_id = v.id AND r.stock_applied = false), 0) " +
+                   "FROM product_variants v WHERE v.id = :variantId",
+           nativeQuery = true)
+    Optional<Long> findAvailableStock(@Param("variantId") Long variantId);
 }
 
@@ -0,0 +1,48 @@
+package com.example.demo.inventory.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Định kỳ ghi phần stock đã giữ trên Redis (reservation stock_applied = false) về product_variants theo lô:
+// mỗi lô một transaction, mỗi variant một UPDATE dù có hàng nghìn đơn, thay cho một UPDATE mỗi đơn lúc checkout.
+// Cũng nạp lại counter Redis của các variant hot: toàn bộ nếu Redis đã khởi động lại, không thì chỉ counter đã mất
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotStockReconciler {
+
+    private final InventoryService inventoryService;
+    private final HotStockService hotStockService;
+
+    @Value("${inventory.hot-stock.reconcile-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${inventory.hot-stock.reconcile-max-batches:50}")
+    private int maxBatches;
+
+    @Scheduled(fixedDelayString = "${inventory.hot-stock.reconcile-interval:PT2S}",
+            initialDelayString = "${inventory.hot-stock.reconcile-interval:PT2S}")
+    public void reconcile() {
+        try {
+            if (!hotStockService.rebuildIfRestarted()) {
+                hotStockService.rebuildMissing();
+            }
+        } catch (Exception e) {
+            log.warn("Không kiểm tra được counter stock hot, thử lại lần sau: {}", e.getMessage());
+        }
+        for (int batch = 0; batch < maxBatches; batch++) {
+            try {
+                if (inventoryService.applyPendingReservations(null, batchSize) == 0) {
+                    return;
+                }
+            } catch (Exception e) {
+                // Lô rollback nên reservation vẫn chưa áp dụng, lần chạy sau nhận lại
+                log.warn("Không ghi được stock hot về DB, thử lại lần sau: {}", e.getMessage());
+                return;
+            }
+        }
+    }
+}
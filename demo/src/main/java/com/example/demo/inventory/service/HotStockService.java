@@ -0,0 +1,277 @@
+package com.example.demo.inventory.service;
+
+import com.example.demo.inventory.repository.StockReservationRepository;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductVariantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+// Stock khả dụng của variant hot giữ trong hash Redis stock:hot:{variantId} (n = số còn lại, e = epoch),
+// giữ hàng bằng một Lua script nguyên tử thay vì tranh nhau khóa dòng product_variants.
+// Bất biến: n = stock - tổng các reservation chưa áp dụng (stock_applied = false), nên mất counter thì tính lại
+// được từ Postgres. Điều kiện để bất biến đúng:
+// - checkout/hủy đơn giữ FOR KEY SHARE trên dòng variant tới khi commit (InventoryService), còn nạp lại counter
+//   giữ FOR UPDATE, nên lúc nạp không còn lần giữ hàng nào chưa commit
+// - mỗi lần nạp đổi epoch; hoàn hàng (rollback checkout, hủy đơn) chỉ cộng vào counter có đúng epoch lúc giữ/đọc,
+//   phần hàng đó đã nằm sẵn trong counter nạp lại từ DB
+// - Redis khởi động lại từ RDB/AOF cũ trả về counter cũ với epoch vẫn khớp: key stock:hot:fence giữ run_id của
+//   tiến trình Redis đã nạp toàn bộ counter; script giữ hàng so với run_id hiện tại và từ chối khi lệch,
+//   HotStockReconciler nạp lại mọi counter rồi mới ghi fence mới
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class HotStockService {
+
+    private static final String KEY_PREFIX = "stock:hot:";
+    private static final String AVAILABLE = "n";
+    private static final String EPOCH = "e";
+    private static final String FENCE_KEY = "stock:hot:fence";
+
+    // KEYS[1]: fence, KEYS[2..]: counter từng variant, ARGV: số lượng tương ứng. Tất cả hoặc không:
+    // {0, epoch...} thành công (epoch từng counter), {1, i...} các vị trí không đủ hàng, {2, i...} các counter chưa nạp,
+    // {3} Redis đã khởi động lại từ khi nạp counter (fence khác run_id hiện tại)
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> RESERVE_SCRIPT = new DefaultRedisScript<>("""
+            local runId = string.match(redis.call('INFO', 'server'), 'run_id:(%w+)')
+            if redis.call('GET', KEYS[1]) ~= runId then
+                return {3}
+            end
+            table.remove(KEYS, 1)
+            local missing = {}
+            local short = {}
+            local epochs = {}
+            for i, key in ipairs(KEYS) do
+                local counter = redis.call('HMGET', key, 'n', 'e')
+                if not counter[1] then
+                    table.insert(missing, i)
+                elseif tonumber(counter[1]) < tonumber(ARGV[i]) then
+                    table.insert(short, i)
+                end
+                epochs[i] = counter[2]
+            end
+            if #missing > 0 then
+                return {2, unpack(missing)}
+            end
+            if #short > 0 then
+                return {1, unpack(short)}
+            end
+            for i, key in ipairs(KEYS) do
+                redis.call('HINCRBY', key, 'n', -tonumber(ARGV[i]))
+            end
+            return {0, unpack(epochs)}
+            """, List.class);
+
+    // Trả hàng về counter nếu counter vẫn là bản đã giữ/đọc (ARGV[2] = epoch); counter mất hoặc đã nạp lại thì bỏ qua
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('HGET', KEYS[1], 'e') ~= ARGV[2] then
+                return 0
+            end
+            return redis.call('HINCRBY', KEYS[1], 'n', ARGV[1])
+            """, Long.class);
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final StockReservationRepository stockReservationRepository;
+    private final ProductVariantRepository variantRepository;
+    private final PlatformTransactionManager transactionManager;
+
+    // Giữ hàng cho các variant hot (quantities theo variantId); caller phải đang giữ FOR KEY SHARE trên các dòng variant.
+    // Trả về id các variant không đủ hàng (khi đó không trừ gì). Thành công thì đăng ký hoàn lại counter nếu transaction
+    // checkout rollback. Counter chưa nạp: từ chối, nạp lại sau khi transaction này kết thúc (nạp ngay sẽ phải chờ
+    // chính khóa của checkout này)
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        if (quantities.isEmpty()) {
+            return List.of();
+        }
+        List<Long> variantIds = new ArrayList<>(quantities.keySet());
+        List<String> keys = new ArrayList<>();
+        keys.add(FENCE_KEY);
+        variantIds.stream().map(HotStockService::key).forEach(keys::add);
+        Object[] args = variantIds.stream().map(id -> String.valueOf(quantities.get(id))).toArray();
+
+        List<?> result = stringRedisTemplate.execute(RESERVE_SCRIPT, keys, args);
+        long status = ((Number) result.get(0)).longValue();
+        if (status == 3) {
+            // Không nạp lại ở đây: nạp toàn bộ counter do HotStockReconciler làm, một lần cho mọi checkout
+            throw new RuntimeException("Tồn kho đang được đồng bộ lại, vui lòng thử lại");
+        }
+        if (status == 0) {
+            Map<Long, String> epochs = new HashMap<>();
+            for (int i = 0; i < variantIds.size(); i++) {
+                epochs.put(variantIds.get(i), String.valueOf(result.get(i + 1)));
+            }
+            releaseOnRollback(quantities, epochs);
+            return List.of();
+        }
+        List<Long> positions = result.subList(1, result.size()).stream()
+                .map(position -> variantIds.get(((Number) position).intValue() - 1))
+                .collect(Collectors.toList());
+        if (status == 1) {
+            return positions;
+        }
+        rebuildAfterCompletion(positions);
+        throw new RuntimeException("Tồn kho đang được đồng bộ lại, vui lòng thử lại");
+    }
+
+    // Trả hàng về counter sau khi transaction hủy đơn commit, để checkout khác không thấy hàng chưa thực sự được trả.
+    // Epoch đọc ngay lúc này (caller đang giữ FOR KEY SHARE nên không có lần nạp lại nào đang chạy dở)
+    public void releaseAfterCommit(Long variantId, int quantity) {
+        String epoch = getEpoch(variantId);
+        if (epoch == null) {
+            return; // counter chưa nạp: lần nạp sau tính từ DB đã gồm phần trả
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(variantId, quantity, epoch);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(variantId, quantity, epoch);
+            }
+        });
+    }
+
+    // Tính lại counter từ DB với epoch mới. Caller phải đang giữ FOR UPDATE trên dòng variant (findByIdForUpdate)
+    public void load(Long variantId) {
+        long available = Math.max(stockReservationRepository.findAvailableStock(variantId).orElse(0L), 0);
+        String key = key(variantId);
+        stringRedisTemplate.delete(key);
+        stringRedisTemplate.opsForHash().putAll(key, Map.of(
+                AVAILABLE, String.valueOf(available),
+                EPOCH, UUID.randomUUID().toString()));
+        log.info("Nạp counter stock hot cho variant {}: {}", variantId, available);
+    }
+
+    // Nạp lại counter đã mất trong transaction riêng: chờ các checkout đang giữ hàng commit/rollback xong,
+    // rồi chỉ nạp nếu variant vẫn hot và chưa ai nạp trước
+    public void rebuildIfMissing(Long variantId) {
+        rebuild(variantId, true);
+    }
+
+    // Redis đã khởi động lại (hoặc chưa từng ghi fence): counter còn lại có thể là bản cũ từ RDB/AOF với epoch vẫn khớp,
+    // nên nạp lại toàn bộ counter dưới khóa FOR UPDATE từng variant, xong hết mới ghi fence để checkout được giữ hàng lại.
+    // Ghi run_id đọc lúc bắt đầu: Redis khởi động lại giữa chừng thì fence vẫn lệch và lượt sau nạp lại. True nếu đã nạp
+    public boolean rebuildIfRestarted() {
+        String runId = currentRunId();
+        if (runId == null || runId.equals(stringRedisTemplate.opsForValue().get(FENCE_KEY))) {
+            return false;
+        }
+        List<Long> variantIds = variantRepository.findHotVariantIds();
+        log.warn("Redis đã khởi động lại (run_id {}), nạp lại {} counter stock hot", runId, variantIds.size());
+        for (Long variantId : variantIds) {
+            rebuild(variantId, false);
+        }
+        stringRedisTemplate.opsForValue().set(FENCE_KEY, runId);
+        return true;
+    }
+
+    // Nạp lại counter đã mất (Redis restart / bị xóa) của các variant hot, để checkout không bị từ chối tới khi
+    // có lần checkout kế tiếp kích hoạt nạp lại
+    public void rebuildMissing() {
+        for (Long variantId : variantRepository.findHotVariantIds()) {
+            if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(key(variantId)))) {
+                safeRebuild(variantId);
+            }
+        }
+    }
+
+    public void remove(Long variantId) {
+        stringRedisTemplate.delete(key(variantId));
+    }
+
+    public Long getAvailable(Long variantId) {
+        Object value = stringRedisTemplate.opsForHash().get(key(variantId), AVAILABLE);
+        return value != null ? Long.valueOf(value.toString()) : null;
+    }
+
+    private String getEpoch(Long variantId) {
+        Object value = stringRedisTemplate.opsForHash().get(key(variantId), EPOCH);
+        return value != null ? value.toString() : null;
+    }
+
+    private void releaseOnRollback(Map<Long, Integer> quantities, Map<Long, String> epochs) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        Map<Long, Integer> reserved = Map.copyOf(quantities);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    reserved.forEach((variantId, quantity) -> release(variantId, quantity, epochs.get(variantId)));
+                }
+            }
+        });
+    }
+
+    private void rebuildAfterCompletion(List<Long> variantIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            variantIds.forEach(this::safeRebuild);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                variantIds.forEach(HotStockService.this::safeRebuild);
+            }
+        });
+    }
+
+    private void safeRebuild(Long variantId) {
+        try {
+            rebuildIfMissing(variantId);
+        } catch (Exception e) {
+            // HotStockReconciler nạp lại ở lượt sau
+            log.warn("Không nạp lại được counter stock hot cho variant {}: {}", variantId, e.getMessage());
+        }
+    }
+
+    private void rebuild(Long variantId, boolean onlyIfMissing) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        transactionTemplate.executeWithoutResult(status -> {
+            ProductVariant variant = variantRepository.findByIdForUpdate(variantId).orElse(null);
+            if (variant != null && Boolean.TRUE.equals(variant.getHotStock())
+                    && (!onlyIfMissing || !Boolean.TRUE.equals(stringRedisTemplate.hasKey(key(variantId))))) {
+                load(variantId);
+            }
+        });
+    }
+
+    private String currentRunId() {
+        Properties info = stringRedisTemplate.execute((RedisCallback<Properties>) connection ->
+                connection.serverCommands().info("server"));
+        return info != null ? info.getProperty("run_id") : null;
+    }
+
+    private void release(Long variantId, int quantity, String epoch) {
+        try {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(key(variantId)), String.valueOf(quantity), epoch);
+        } catch (Exception e) {
+            // Counter thấp hơn thực tế: chỉ bán thiếu chứ không bán quá, admin nạp lại được bằng API hot-stock
+            log.warn("Không trả được {} stock hot cho variant {}: {}", quantity, variantId, e.getMessage());
+        }
+    }
+
+    private static String key(Long variantId) {
+        return KEY_PREFIX + variantId;
+    }
+}
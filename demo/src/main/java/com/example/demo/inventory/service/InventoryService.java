@@ -0,0 +1,331 @@
+package com.example.demo.inventory.service;
+
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.inventory.dto.HotStockResponse;
+import com.example.demo.inventory.dto.StockBucketsResponse;
+import com.example.demo.inventory.entity.StockReservation;
+import com.example.demo.inventory.repository.ReservationQuantityView;
+import com.example.demo.inventory.repository.StockBucketRepository;
+import com.example.demo.inventory.repository.StockReservationRepository;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.event.ProductStockChangedEvent;
+import com.example.demo.product.repository.AppliedStockView;
+import com.example.demo.product.repository.ProductRepository;
+import com.example.demo.product.repository.ProductStockView;
+import com.example.demo.product.repository.ProductVariantRepository;
+import com.example.demo.product.repository.VariantStockModeView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+// Mọi thay đổi stock đi qua đây để tổng stock / in_stock trên products khớp với cột stock của variants
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class InventoryService {
+
+    private final ProductVariantRepository variantRepository;
+    private final StockReservationRepository stockReservationRepository;
+    private final HotStockService hotStockService;
+    private final StockBucketService stockBucketService;
+    private final StockBucketRepository stockBucketRepository;
+    private final ProductRepository productRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    // Giữ stock cho cả đơn. Chế độ lưu stock của từng variant đọc dưới khóa FOR KEY SHARE giữ tới hết transaction
+    // (không tin giá trị trên entity đã nạp trước đó), nên đổi chế độ / nạp lại counter Redis phải chờ checkout này.
+    // - variant thường: một câu lệnh giảm stock (khóa theo id tăng dần), rồi một câu lệnh cộng delta vào products
+    // - variant hot: giữ hàng trên Redis, chưa trừ vào DB (HotStockReconciler ghi về sau)
+    // - variant chia bucket: trừ vào một bucket, tổng được StockBucketRollup ghi về sau
+    // Thiếu bất kỳ variant nào thì ném InsufficientStockException kèm đủ các SKU thiếu;
+    // transaction rollback nên các variant đã giảm cũng được hoàn lại.
+    // Trả về id các variant giữ trên Redis: reservation của chúng phải lưu với stockApplied = false
+    @Transactional
+    public Set<Long> reserveStock(Collection<StockChange> changes) {
+        Map<Long, ProductVariant> variants = new TreeMap<>();
+        Map<Long, Integer> requested = new TreeMap<>();
+        for (StockChange change : changes) {
+            variants.put(change.variant().getId(), change.variant());
+            requested.merge(change.variant().getId(), change.quantity(), Integer::sum);
+        }
+
+        Map<Long, Integer> quantities = new TreeMap<>();
+        Map<Long, Integer> hotQuantities = new TreeMap<>();
+        Map<Long, Integer> bucketQuantities = new TreeMap<>();
+        Map<Long, VariantStockModeView> modes = new HashMap<>();
+        // Variant đã bị xóa không có trong kết quả: coi như hết hàng
+        Set<Long> failed = new HashSet<>(requested.keySet());
+        for (VariantStockModeView mode : variantRepository.findStockModesForShare(toArrayLiteral(requested.keySet()))) {
+            modes.put(mode.getId(), mode);
+            failed.remove(mode.getId());
+            Map<Long, Integer> target = Boolean.TRUE.equals(mode.getHotStock()) ? hotQuantities
+                    : mode.getBucketCount() > 1 ? bucketQuantities
+                    : quantities;
+            target.put(mode.getId(), requested.get(mode.getId()));
+        }
+
+        // Script Lua là tất cả hoặc không, và tự hoàn lại counter nếu transaction rollback
+        failed.addAll(hotStockService.reserve(hotQuantities));
+        // Theo id tăng dần (TreeMap), khớp thứ tự khóa của câu lệnh batch
+        bucketQuantities.forEach((variantId, quantity) -> {
+            if (!stockBucketService.decrease(variantId, modes.get(variantId).getBucketCount(), quantity)) {
+                failed.add(variantId);
+            }
+        });
+        if (!quantities.isEmpty()) {
+            Set<Long> reserved = new HashSet<>(variantRepository.decreaseStockBatch(
+                    toArrayLiteral(quantities.keySet()), toArrayLiteral(quantities.values())));
+            List<Long> notReserved = quantities.keySet().stream()
+                    .filter(variantId -> !reserved.contains(variantId))
+                    .collect(Collectors.toList());
+            if (!notReserved.isEmpty()) {
+                // Câu lệnh cũng bỏ qua variant vừa chuyển sang hot/bucket: đọc lại chế độ, đổi thật thì cho thử lại
+                // (đường giữ hàng khác) thay vì báo hết hàng
+                boolean modeChanged = variantRepository.findStockModesForShare(toArrayLiteral(notReserved)).stream()
+                        .anyMatch(mode -> Boolean.TRUE.equals(mode.getHotStock()) || mode.getBucketCount() > 1);
+                if (modeChanged) {
+                    throw new RuntimeException("Chế độ tồn kho của sản phẩm vừa thay đổi, vui lòng thử lại");
+                }
+                failed.addAll(notReserved);
+            }
+        }
+        if (!failed.isEmpty()) {
+            List<String> failedSkus = variants.values().stream()
+                    .filter(variant -> failed.contains(variant.getId()))
+                    .map(ProductVariant::getSku)
+                    .collect(Collectors.toList());
+            throw new InsufficientStockException(failedSkus);
+        }
+
+        Map<Long, Integer> productDeltas = new TreeMap<>();
+        quantities.forEach((variantId, quantity) ->
+                productDeltas.merge(variants.get(variantId).getProduct().getId(), -quantity, Integer::sum));
+        applyProductDeltas(productDeltas);
+        return hotQuantities.keySet();
+    }
+
+    // Trả lại stock của một reservation (hủy đơn). Reservation hot chưa áp dụng thì DB chưa từng trừ:
+    // chỉ đánh dấu đã áp dụng và trả counter Redis; markStockApplied chờ reconciler nếu nó đang giữ dòng
+    @Transactional
+    public void releaseReservation(StockReservation reservation) {
+        ProductVariant variant = reservation.getVariant();
+        VariantStockModeView mode = lockStockMode(variant.getId());
+        boolean applied = !Boolean.FALSE.equals(reservation.getStockApplied())
+                || stockReservationRepository.markStockApplied(reservation.getId()) == 0;
+        // Giữ entity khớp với DB, tránh lần flush sau ghi đè stock_applied về false
+        reservation.setStockApplied(true);
+        if (applied) {
+            addStock(variant, mode, reservation.getQuantity());
+        }
+        // Counter của variant hot luôn đã trừ phần này, dù reservation đã được ghi về DB hay chưa
+        if (Boolean.TRUE.equals(mode.getHotStock())) {
+            hotStockService.releaseAfterCommit(variant.getId(), reservation.getQuantity());
+        }
+    }
+
+    // Ghi các reservation hot chưa áp dụng về product_variants theo lô (tối đa limit reservation).
+    // variantId khác null: chỉ của variant đó. Khóa các variant trước rồi mới nhận reservation, cùng thứ tự với
+    // setHotStock nên hai bên không deadlock. Variant mà stock trên DB không đủ cho phần đã giữ (counter lệch DB)
+    // bị từ chối: báo lỗi và trả reservation về chưa áp dụng thay vì để stock âm.
+    // Trả về số reservation đã ghi, 0 khi không còn gì để ghi
+    @Transactional
+    public int applyPendingReservations(Long variantId, int limit) {
+        List<Long> variantIds = variantId != null ? List.of(variantId)
+                : stockReservationRepository.findVariantsWithUnappliedReservations(limit);
+        if (variantIds.isEmpty()) {
+            return 0;
+        }
+        variantRepository.lockForStockUpdate(toArrayLiteral(variantIds));
+        List<ReservationQuantityView> claimed =
+                stockReservationRepository.claimUnappliedReservations(toArrayLiteral(variantIds), limit);
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Integer> variantDeltas = new TreeMap<>();
+        claimed.forEach(view -> variantDeltas.merge(view.getVariantId(), -view.getQuantity(), Integer::sum));
+        List<AppliedStockView> updated = variantRepository.applyStockDeltas(
+                toArrayLiteral(variantDeltas.keySet()), toArrayLiteral(variantDeltas.values()));
+        Map<Long, Integer> productDeltas = new TreeMap<>();
+        updated.forEach(view -> productDeltas.merge(view.getProductId(), variantDeltas.get(view.getId()), Integer::sum));
+        applyProductDeltas(productDeltas);
+
+        Set<Long> updatedVariants = updated.stream().map(AppliedStockView::getId).collect(Collectors.toSet());
+        List<Long> refused = claimed.stream()
+                .filter(view -> !updatedVariants.contains(view.getVariantId()))
+                .map(ReservationQuantityView::getId)
+                .collect(Collectors.toList());
+        if (!refused.isEmpty()) {
+            Set<Long> refusedVariants = new TreeSet<>(variantDeltas.keySet());
+            refusedVariants.removeAll(updatedVariants);
+            log.error("Stock trên DB không đủ cho {} reservation đã giữ trên Redis của variant {}, cần kiểm tra tồn kho",
+                    refused.size(), refusedVariants);
+            stockReservationRepository.unmarkStockApplied(toArrayLiteral(refused));
+        }
+        return claimed.size() - refused.size();
+    }
+
+    // Khóa FOR UPDATE: chờ checkout/hủy đơn đang giữ FOR KEY SHARE trên variant xong, checkout sau đó thấy chế độ mới.
+    // Bật (hoặc bật lại): nạp counter từ DB với epoch mới. Tắt: ghi hết reservation chưa áp dụng về DB trong cùng
+    // transaction để checkout theo đường DB thấy đúng stock, rồi xóa counter
+    @Transactional
+    public HotStockResponse setHotStock(Long variantId, boolean enabled) {
+        ProductVariant variant = variantRepository.findByIdForUpdate(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", variantId));
+        if (enabled && stockBucketService.isBucketed(variant)) {
+            throw new RuntimeException("Variant đang chia stock theo bucket, gộp bucket trước khi bật stock hot");
+        }
+        variantRepository.updateHotStock(variantId, enabled);
+        if (enabled) {
+            hotStockService.load(variantId);
+        } else {
+            applyPendingReservations(variantId, Integer.MAX_VALUE);
+            if (stockReservationRepository.existsByVariant_IdAndStockAppliedFalse(variantId)) {
+                throw new RuntimeException("Stock trên DB không đủ cho các đơn đã giữ trên Redis, kiểm tra tồn kho trước khi tắt stock hot");
+            }
+            hotStockService.remove(variantId);
+        }
+        return HotStockResponse.builder()
+                .variantId(variantId)
+                .sku(variant.getSku())
+                .hotStock(enabled)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public HotStockResponse getHotStock(Long variantId) {
+        ProductVariant variant = variantRepository.findById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", variantId));
+        return HotStockResponse.builder()
+                .variantId(variantId)
+                .sku(variant.getSku())
+                .hotStock(Boolean.TRUE.equals(variant.getHotStock()))
+                .stock(variant.getStock())
+                .availableInRedis(hotStockService.getAvailable(variantId))
+                .build();
+    }
+
+    // Chia stock của variant thành bucketCount bucket (<= 1: gộp về một dòng product_variants).
+    // Khóa dòng variant FOR UPDATE: hai lần chia không chạy chồng nhau, và chờ các checkout đang giữ FOR KEY SHARE
+    // (đã chọn đường giữ hàng theo chế độ cũ) xong mới chia
+    @Transactional
+    public StockBucketsResponse setStockBuckets(Long variantId, int bucketCount) {
+        ProductVariant variant = variantRepository.findByIdForUpdate(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", variantId));
+        if (Boolean.TRUE.equals(variant.getHotStock())) {
+            throw new RuntimeException("Variant đang giữ stock trên Redis, tắt stock hot trước khi chia bucket");
+        }
+        int total = stockBucketService.redistribute(variant, bucketCount);
+        int storedCount = bucketCount > 1 ? bucketCount : 0;
+        variantRepository.updateBuckets(variantId, storedCount, total);
+        // Tổng trên products có thể lệch nếu rollup chưa chạy kịp trước khi gộp
+        refreshProductStock(List.of(variant.getProduct().getId()));
+        return StockBucketsResponse.builder()
+                .variantId(variantId)
+                .sku(variant.getSku())
+                .bucketCount(storedCount)
+                .stock(total)
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public StockBucketsResponse getStockBuckets(Long variantId) {
+        ProductVariant variant = variantRepository.findById(variantId)
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", variantId));
+        List<Integer> buckets = stockBucketService.getBucketStocks(variantId);
+        return StockBucketsResponse.builder()
+                .variantId(variantId)
+                .sku(variant.getSku())
+                .bucketCount(variant.getBucketCount())
+                .stock(buckets.isEmpty() ? variant.getStock() : buckets.stream().mapToInt(Integer::intValue).sum())
+                .buckets(buckets)
+                .build();
+    }
+
+    // Ghi tổng các bucket của các variant vừa đổi vào product_variants.stock rồi tính lại tổng của các sản phẩm
+    // bị ảnh hưởng (variant id tăng dần để các lượt rollup khóa dòng cùng thứ tự)
+    @Transactional
+    public int rollupStockBuckets(Collection<Long> variantIds) {
+        if (variantIds.isEmpty()) {
+            return 0;
+        }
+        String ids = toArrayLiteral(new TreeSet<>(variantIds));
+        Set<Long> productIds = new TreeSet<>(stockBucketRepository.rollupVariantStock(ids));
+        refreshProductStock(productIds);
+        return productIds.size();
+    }
+
+    // Như trên cho mọi variant chia bucket
+    @Transactional
+    public int rollupAllStockBuckets() {
+        Set<Long> productIds = new TreeSet<>(stockBucketRepository.rollupAllVariantStock());
+        refreshProductStock(productIds);
+        return productIds.size();
+    }
+
+    @Transactional
+    public void increaseStock(ProductVariant variant, int quantity) {
+        VariantStockModeView mode = lockStockMode(variant.getId());
+        addStock(variant, mode, quantity);
+        if (Boolean.TRUE.equals(mode.getHotStock())) {
+            hotStockService.releaseAfterCommit(variant.getId(), quantity);
+        }
+    }
+
+    // Đọc chế độ lưu stock dưới khóa FOR KEY SHARE, như checkout
+    private VariantStockModeView lockStockMode(Long variantId) {
+        return variantRepository.findStockModesForShare(toArrayLiteral(List.of(variantId))).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResourceNotFoundException("ProductVariant", variantId));
+    }
+
+    private void addStock(ProductVariant variant, VariantStockModeView mode, int quantity) {
+        if (mode.getBucketCount() > 1) {
+            stockBucketService.increase(variant.getId(), mode.getBucketCount(), quantity);
+            return;
+        }
+        if (variantRepository.increaseStock(variant.getId(), quantity) > 0) {
+            // getId() trên lazy proxy không phát sinh query
+            applyProductDeltas(Map.of(variant.getProduct().getId(), quantity));
+        }
+    }
+
+    private static String toArrayLiteral(Collection<?> values) {
+        return values.stream().map(String::valueOf).collect(Collectors.joining(",", "{", "}"));
+    }
+
+    public record StockChange(ProductVariant variant, int quantity) {
+    }
+
+    // Một câu lệnh cho cả lô (product id tăng dần), mỗi sản phẩm một ProductStockChangedEvent
+    private void applyProductDeltas(Map<Long, Integer> productDeltas) {
+        if (productDeltas.isEmpty()) {
+            return;
+        }
+        productRepository.applyStockDeltas(toArrayLiteral(productDeltas.keySet()), toArrayLiteral(productDeltas.values()))
+                .forEach(this::publishStockChanged);
+    }
+
+    private void refreshProductStock(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return;
+        }
+        productRepository.refreshStock(toArrayLiteral(new TreeSet<>(productIds))).forEach(this::publishStockChanged);
+    }
+
+    private void publishStockChanged(ProductStockView view) {
+        eventPublisher.publishEvent(new ProductStockChangedEvent(view.getId(), Boolean.TRUE.equals(view.getInStock())));
+    }
+}
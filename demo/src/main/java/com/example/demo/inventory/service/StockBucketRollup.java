@@ -0,0 +1,60 @@
+package com.example.demo.inventory.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// Định kỳ ghi tổng các bucket về product_variants.stock / products.total_stock, để nơi đọc cột stock
+// (giỏ hàng, trang sản phẩm) vẫn thấy đúng số lượng mà checkout không phải khóa các dòng đó.
+// Mỗi lượt chỉ tổng hợp các variant StockBucketService đánh dấu đã đổi; lượt toàn bộ chạy thưa để bù đánh dấu bị mất
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StockBucketRollup {
+
+    private static final int BATCH_SIZE = 500;
+
+    private final InventoryService inventoryService;
+    private final StockBucketService stockBucketService;
+
+    @Scheduled(fixedDelayString = "${inventory.buckets.rollup-interval:PT2S}",
+            initialDelayString = "${inventory.buckets.rollup-interval:PT2S}")
+    public void rollup() {
+        // Chỉ xử lý số variant đang bẩn lúc bắt đầu, để variant lỗi được đánh dấu lại không bị lấy ra lặp vô hạn
+        long remaining;
+        try {
+            remaining = stockBucketService.countDirty();
+        } catch (Exception e) {
+            log.warn("Không đọc được danh sách variant cần tổng hợp stock bucket: {}", e.getMessage());
+            return;
+        }
+        while (remaining > 0) {
+            // SPOP trước khi tổng hợp: bucket đổi trong lúc tổng hợp sẽ được đánh dấu lại và ghi ở lượt sau
+            List<Long> variantIds = stockBucketService.popDirty(Math.min(remaining, BATCH_SIZE));
+            if (variantIds.isEmpty()) {
+                return;
+            }
+            remaining -= variantIds.size();
+            try {
+                inventoryService.rollupStockBuckets(variantIds);
+            } catch (Exception e) {
+                log.warn("Không tổng hợp được stock bucket, thử lại lần sau: {}", e.getMessage());
+                stockBucketService.restoreDirty(variantIds);
+                return;
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.buckets.full-rollup-interval:PT10M}",
+            initialDelayString = "${inventory.buckets.full-rollup-interval:PT10M}")
+    public void rollupAll() {
+        try {
+            inventoryService.rollupAllStockBuckets();
+        } catch (Exception e) {
+            log.warn("Không tổng hợp được toàn bộ stock bucket, thử lại lần sau: {}", e.getMessage());
+        }
+    }
+}
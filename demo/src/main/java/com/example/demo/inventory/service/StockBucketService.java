@@ -0,0 +1,151 @@
+package com.example.demo.inventory.service;
+
+import com.example.demo.inventory.entity.StockBucket;
+import com.example.demo.inventory.repository.StockBucketRepository;
+import com.example.demo.product.entity.ProductVariant;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+// Thao tác stock trên các bucket của một variant. Không đụng tới product_variants/products:
+// variant vừa đổi được đánh dấu trong set Redis stock:buckets:dirty, StockBucketRollup chỉ tổng hợp các variant đó
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StockBucketService {
+
+    private static final String DIRTY_KEY = "stock:buckets:dirty";
+
+    private final StockBucketRepository stockBucketRepository;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    public boolean isBucketed(ProductVariant variant) {
+        return variant.getBucketCount() != null && variant.getBucketCount() > 1;
+    }
+
+    // Đường nhanh: một bucket đủ hàng, chọn ngẫu nhiên và bỏ qua bucket đang bị khóa.
+    // Dự phòng (không bucket nào tự đủ, hoặc tất cả đang bị khóa): khóa hết các bucket và lấy dần từ nhiều bucket
+    // bucketCount lấy từ chế độ đọc dưới khóa dòng variant (InventoryService), không lấy từ entity nạp trước đó
+    @Transactional
+    public boolean decrease(Long variantId, int bucketCount, int quantity) {
+        int start = ThreadLocalRandom.current().nextInt(bucketCount);
+        if (stockBucketRepository.decreaseAnyBucket(variantId, quantity, start, bucketCount) > 0) {
+            markDirtyAfterCommit(variantId);
+            return true;
+        }
+
+        List<StockBucket> buckets = new ArrayList<>(stockBucketRepository.findByVariantIdForUpdate(variantId));
+        int total = buckets.stream().mapToInt(StockBucket::getStock).sum();
+        if (total < quantity) {
+            return false;
+        }
+        buckets.sort(Comparator.comparing(StockBucket::getStock).reversed());
+        int remaining = quantity;
+        for (StockBucket bucket : buckets) {
+            int taken = Math.min(bucket.getStock(), remaining);
+            bucket.setStock(bucket.getStock() - taken);
+            remaining -= taken;
+            if (remaining == 0) {
+                break;
+            }
+        }
+        // Entity đang managed: dirty checking ghi các bucket đã đổi lúc flush
+        markDirtyAfterCommit(variantId);
+        return true;
+    }
+
+    // Hàng trả về vào bucket ít hàng nhất đang rảnh; tất cả đang bị khóa thì chờ một bucket ngẫu nhiên
+    @Transactional
+    public void increase(Long variantId, int bucketCount, int quantity) {
+        if (stockBucketRepository.increaseAnyBucket(variantId, quantity) == 0) {
+            int bucketNo = ThreadLocalRandom.current().nextInt(bucketCount);
+            stockBucketRepository.increaseBucket(variantId, bucketNo, quantity);
+        }
+        markDirtyAfterCommit(variantId);
+    }
+
+    // Chia lại stock của variant thành bucketCount bucket đều nhau (phần dư dồn vào các bucket đầu).
+    // bucketCount <= 1: bỏ bucket. Gọi khi đã khóa dòng variant; trả về tổng stock hiện tại
+    @Transactional
+    public int redistribute(ProductVariant variant, int bucketCount) {
+        int total = variant.getStock();
+        if (isBucketed(variant)) {
+            total = stockBucketRepository.findByVariantIdForUpdate(variant.getId()).stream()
+                    .mapToInt(StockBucket::getStock)
+                    .sum();
+        }
+        stockBucketRepository.deleteByVariantId(variant.getId());
+        if (bucketCount > 1) {
+            List<StockBucket> buckets = new ArrayList<>();
+            for (int i = 0; i < bucketCount; i++) {
+                buckets.add(StockBucket.builder()
+                        .variant(variant)
+                        .bucketNo(i)
+                        .stock(total / bucketCount + (i < total % bucketCount ? 1 : 0))
+                        .build());
+            }
+            stockBucketRepository.saveAll(buckets);
+        }
+        return total;
+    }
+
+    public List<Integer> getBucketStocks(Long variantId) {
+        return stockBucketRepository.findByVariantId(variantId).stream()
+                .map(StockBucket::getStock)
+                .collect(Collectors.toList());
+    }
+
+    public long countDirty() {
+        Long pending = stringRedisTemplate.opsForSet().size(DIRTY_KEY);
+        return pending != null ? pending : 0;
+    }
+
+    public List<Long> popDirty(long count) {
+        List<String> variantIds = stringRedisTemplate.opsForSet().pop(DIRTY_KEY, count);
+        if (variantIds == null) {
+            return List.of();
+        }
+        return variantIds.stream().map(Long::valueOf).collect(Collectors.toList());
+    }
+
+    public void restoreDirty(Collection<Long> variantIds) {
+        if (!variantIds.isEmpty()) {
+            stringRedisTemplate.opsForSet().add(DIRTY_KEY, variantIds.stream().map(String::valueOf).toArray(String[]::new));
+        }
+    }
+
+    // Đánh dấu sau khi commit: đánh dấu sớm hơn thì rollup có thể lấy ra và tổng hợp trước khi thay đổi hiện ra
+    private void markDirtyAfterCommit(Long variantId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            markDirty(variantId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markDirty(variantId);
+            }
+        });
+    }
+
+    private void markDirty(Long variantId) {
+        try {
+            stringRedisTemplate.opsForSet().add(DIRTY_KEY, String.valueOf(variantId));
+        } catch (Exception e) {
+            // Lượt tổng hợp toàn bộ (inventory.buckets.full-rollup-interval) sẽ ghi về
+            log.warn("Không đánh dấu được variant {} cần tổng hợp stock bucket: {}", variantId, e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.demo.order.controller;
 
+import com.example.demo.common.pagination.CursorPage;
 import com.example.demo.order.dto.CheckoutRequest;
 import com.example.demo.order.dto.OrderResponse;
 import com.example.demo.order.service.OrderService;
@@ -50,6 +51,26 @@ public class OrderController {
         return ResponseEntity.ok(orders);
     }
 
+    @GetMapping("/my-orders/cursor")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Lấy đơn hàng của tôi theo cursor", description = "Keyset pagination theo (createdAt, id), không trả total")
+    public ResponseEntity<CursorPage<OrderResponse>> getMyOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        CursorPage<OrderResponse> orders = orderService.getMyOrdersByCursor(cursor, size);
+        return ResponseEntity.ok(orders);
+    }
+
+    @GetMapping("/cursor")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "Lấy tất cả đơn hàng theo cursor (Admin only)")
+    public ResponseEntity<CursorPage<OrderResponse>> getAllOrdersByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        CursorPage<OrderResponse> orders = orderService.getAllOrdersByCursor(cursor, size);
+        return ResponseEntity.ok(orders);
+    }
+
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(summary = "Lấy tất cả đơn hàng (Admin only)")
@@ -17,7 +17,9 @@ import java.util.List;
 @Table(name = "orders", indexes = {
     @Index(name = "idx_order_number", columnList = "order_number"),
     @Index(name = "idx_order_user", columnList = "user_id"),
-    @Index(name = "idx_order_status", columnList = "status")
+    @Index(name = "idx_order_status", columnList = "status"),
+    @Index(name = "idx_order_user_created", columnList = "user_id, created_at, id"),
+    @Index(name = "idx_order_created", columnList = "created_at, id")
 })
 @Data
 @Builder
@@ -25,7 +27,8 @@ import java.util.List;
 @AllArgsConstructor
 public class Order {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -75,18 +78,11 @@ public class Order {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
-        if (orderNumber == null || orderNumber.isEmpty()) {
-            orderNumber = generateOrderNumber();
-        }
     }
 
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now();
     }
-
-    private String generateOrderNumber() {
-        return "ORD" + System.currentTimeMillis() + String.format("%04d", (int)(Math.random() * 10000));
-    }
 }
 
@@ -18,6 +18,32 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     Page<Order> findByUser(User user, Pageable pageable);
     List<Order> findByUser(User user);
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
+
+    // Keyset pagination theo (created_at, id): không OFFSET, không count(*)
+    @Query(value = "SELECT o.* FROM orders o WHERE o.user_id = :userId " +
+                   "ORDER BY o.created_at DESC, o.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Order> findFirstByUserKeyset(@Param("userId") Long userId, @Param("limit") int limit);
+
+    @Query(value = "SELECT o.* FROM orders o WHERE o.user_id = :userId " +
+                   "AND (o.created_at, o.id) < (:createdAt, :id) " +
+                   "ORDER BY o.created_at DESC, o.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Order> findByUserKeysetAfter(@Param("userId") Long userId,
+                                      @Param("createdAt") LocalDateTime createdAt,
+                                      @Param("id") Long id,
+                                      @Param("limit") int limit);
+
+    @Query(value = "SELECT o.* FROM orders o ORDER BY o.created_at DESC, o.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Order> findFirstKeyset(@Param("limit") int limit);
+
+    @Query(value = "SELECT o.* FROM orders o WHERE (o.created_at, o.id) < (:createdAt, :id) " +
+                   "ORDER BY o.created_at DESC, o.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Order> findKeysetAfter(@Param("createdAt") LocalDateTime createdAt,
+                                @Param("id") Long id,
+                                @Param("limit") int limit);
     
     @Query("SELECT o FROM Order o WHERE o.createdAt BETWEEN :from AND :to")
     Page<Order> findByDateRange(@Param("from") LocalDateTime from, 
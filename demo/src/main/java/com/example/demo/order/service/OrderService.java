@@ -3,17 +3,21 @@ package com.example.demo.order.service;
 import com.example.demo.cart.entity.Cart;
 import com.example.demo.cart.entity.CartItem;
 import com.example.demo.cart.repository.CartRepository;
+import com.example.demo.cart.service.CartService;
+import com.example.demo.common.id.IdGenerator;
+import com.example.demo.common.pagination.Cursor;
+import com.example.demo.common.pagination.CursorPage;
 import com.example.demo.exception.ResourceNotFoundException;
 import com.example.demo.inventory.entity.ReservationStatus;
 import com.example.demo.inventory.entity.StockReservation;
 import com.example.demo.inventory.repository.StockReservationRepository;
+import com.example.demo.inventory.service.InventoryService;
 import com.example.demo.order.dto.*;
 import com.example.demo.order.entity.Order;
 import com.example.demo.order.entity.OrderItem;
 import com.example.demo.order.entity.OrderStatus;
 import com.example.demo.order.repository.OrderRepository;
 import com.example.demo.product.entity.ProductVariant;
-import com.example.demo.product.repository.ProductVariantRepository;
 import com.example.demo.promotion.entity.Coupon;
 import com.example.demo.promotion.repository.CouponRepository;
 import com.example.demo.user.entity.Address;
@@ -32,7 +36,9 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,15 +48,19 @@ public class OrderService {
 
     private final OrderRepository orderRepository;
     private final CartRepository cartRepository;
+    private final CartService cartService;
     private final UserRepository userRepository;
     private final AddressRepository addressRepository;
-    private final ProductVariantRepository variantRepository;
     private final CouponRepository couponRepository;
     private final StockReservationRepository stockReservationRepository;
+    private final InventoryService inventoryService;
+    private final IdGenerator idGenerator;
 
     @Transactional
     public OrderResponse checkout(CheckoutRequest request) {
         User user = getCurrentUser();
+        // Với cart.engine=redis, giỏ được ghi xuống DB (trong transaction này) trước khi đọc
+        cartService.flushToDatabase(user.getId());
         Cart cart = cartRepository.findByUser(user)
                 .orElseThrow(() -> new RuntimeException("Giỏ hàng trống"));
 
@@ -95,6 +105,7 @@ public class OrderService {
 
         // Tạo đơn hàng
         Order order = Order.builder()
+                .orderNumber(idGenerator.nextCode("ORD"))
                 .user(user)
                 .status(OrderStatus.CREATED)
                 .subtotal(subtotal)
@@ -107,14 +118,11 @@ public class OrderService {
                 .build();
 
         // Tạo order items và reserve stock
+        List<StockReservation> reservations = new ArrayList<>();
+        List<InventoryService.StockChange> stockChanges = new ArrayList<>();
         for (CartItem cartItem : cart.getItems()) {
             ProductVariant variant = cartItem.getVariant();
 
-            // Kiểm tra stock
-            if (variant.getStock() < cartItem.getQuantity()) {
-                throw new RuntimeException("Sản phẩm " + variant.getSku() + " không đủ số lượng");
-            }
-
             // Tạo order item
             OrderItem orderItem = OrderItem.builder()
                     .order(order)
@@ -133,16 +141,20 @@ public class OrderService {
                     .status(ReservationStatus.PENDING)
                     .expiresAt(LocalDateTime.now().plusMinutes(30)) // 30 phút để thanh toán
                     .build();
-            stockReservationRepository.save(reservation);
-
-            // Giảm stock tạm thời (sẽ rollback nếu thanh toán thất bại)
-            int updated = variantRepository.decreaseStock(variant.getId(), cartItem.getQuantity());
-            if (updated == 0) {
-                throw new RuntimeException("Không thể giảm stock cho sản phẩm " + variant.getSku());
-            }
+            reservations.add(reservation);
+            stockChanges.add(new InventoryService.StockChange(variant, cartItem.getQuantity()));
         }
 
+        // Giảm stock tạm thời cho cả giỏ trong một câu lệnh (sẽ rollback nếu thanh toán thất bại).
+        // Thiếu hàng thì trả 409 kèm danh sách SKU thiếu
+        Set<Long> heldInRedis = inventoryService.reserveStock(stockChanges);
+        reservations.forEach(reservation ->
+                reservation.setStockApplied(!heldInRedis.contains(reservation.getVariant().getId())));
+
+        // Persist sau vòng lặp: id lấy từ sequence nên INSERT order, order items và reservations
+        // được dồn tới lúc flush và gửi theo batch (các UPDATE stock native ở trên sẽ flush nếu persist sớm hơn)
         Order savedOrder = orderRepository.save(order);
+        stockReservationRepository.saveAll(reservations);
 
         // Xóa giỏ hàng sau khi checkout thành công
         // cartRepository.delete(cart); // Hoặc giữ lại để user có thể xem lại
@@ -189,16 +201,16 @@ public class OrderService {
         }
 
         // Release stock reservations
-        List<StockReservation> reservations = stockReservationRepository.findByOrder(order);
+        List<StockReservation> reservations = stockReservationRepository.findByOrder(order).stream()
+                .filter(reservation -> reservation.getStatus() == ReservationStatus.PENDING ||
+                        reservation.getStatus() == ReservationStatus.CONFIRMED)
+                .collect(Collectors.toList());
         for (StockReservation reservation : reservations) {
-            if (reservation.getStatus() == ReservationStatus.PENDING || 
-                reservation.getStatus() == ReservationStatus.CONFIRMED) {
-                // Trả lại stock
-                variantRepository.increaseStock(reservation.getVariant().getId(), reservation.getQuantity());
-                reservation.setStatus(ReservationStatus.RELEASED);
-                stockReservationRepository.save(reservation);
-            }
+            // Trả lại stock (DB hoặc counter Redis của variant hot)
+            inventoryService.releaseReservation(reservation);
         }
+        // Đổi trạng thái sau khi trả stock để các UPDATE reservation được batch lúc commit
+        reservations.forEach(reservation -> reservation.setStatus(ReservationStatus.RELEASED));
 
         order.setStatus(OrderStatus.CANCELLED);
         Order savedOrder = orderRepository.save(order);
@@ -231,6 +243,40 @@ public class OrderService {
         return orders.map(this::mapToOrderResponse);
     }
 
+    public CursorPage<OrderResponse> getMyOrdersByCursor(String cursor, int size) {
+        User user = getCurrentUser();
+        int limit = CursorPage.clampSize(size);
+        List<Order> orders;
+        if (cursor == null || cursor.isBlank()) {
+            orders = orderRepository.findFirstByUserKeyset(user.getId(), limit + 1);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            orders = orderRepository.findByUserKeysetAfter(user.getId(), after.createdAt(), after.id(), limit + 1);
+        }
+        return CursorPage.of(orders, limit, o -> new Cursor(o.getCreatedAt(), o.getId()), this::mapToOrderResponses);
+    }
+
+    public CursorPage<OrderResponse> getAllOrdersByCursor(String cursor, int size) {
+        if (!isAdmin()) {
+            throw new RuntimeException("Chỉ admin mới có quyền xem tất cả đơn hàng");
+        }
+        int limit = CursorPage.clampSize(size);
+        List<Order> orders;
+        if (cursor == null || cursor.isBlank()) {
+            orders = orderRepository.findFirstKeyset(limit + 1);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            orders = orderRepository.findKeysetAfter(after.createdAt(), after.id(), limit + 1);
+        }
+        return CursorPage.of(orders, limit, o -> new Cursor(o.getCreatedAt(), o.getId()), this::mapToOrderResponses);
+    }
+
+    private List<OrderResponse> mapToOrderResponses(List<Order> orders) {
+        return orders.stream()
+                .map(this::mapToOrderResponse)
+                .collect(Collectors.toList());
+    }
+
     private BigDecimal calculateCartSubtotal(Cart cart) {
         return cart.getItems().stream()
                 .map(item -> item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())))
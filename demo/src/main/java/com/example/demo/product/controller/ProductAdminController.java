@@ -0,0 +1,66 @@
+package com.example.demo.product.controller;
+
+import com.example.demo.product.dto.ProductExportFormat;
+import com.example.demo.product.dto.ProductImportJobResponse;
+import com.example.demo.product.service.ProductExportService;
+import com.example.demo.product.service.ProductImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+
+// /api/v1/admin/** chỉ ADMIN truy cập được (SecurityConfig)
+@RestController
+@RequestMapping("/api/v1/admin/products")
+@RequiredArgsConstructor
+@Tag(name = "Product Admin", description = "API quản trị sản phẩm")
+public class ProductAdminController {
+
+    private final ProductExportService productExportService;
+    private final ProductImportService productImportService;
+
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @Operation(summary = "Import sản phẩm hàng loạt", description = "File .csv hoặc .jsonl, mỗi dòng một variant. Chạy nền, trả về job id")
+    public ResponseEntity<ProductImportJobResponse> importProducts(@RequestParam("file") MultipartFile file) {
+        ProductImportJobResponse job = productImportService.startImport(file);
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(job);
+    }
+
+    @GetMapping("/import/{jobId}")
+    @Operation(summary = "Tiến độ và lỗi của job import")
+    public ResponseEntity<ProductImportJobResponse> getImportJob(@PathVariable String jobId) {
+        return ResponseEntity.ok(productImportService.getJob(jobId));
+    }
+
+    @GetMapping("/export")
+    @Operation(summary = "Xuất toàn bộ sản phẩm", description = "NDJSON hoặc CSV, ghi thẳng ra response theo từng chunk")
+    public ResponseEntity<StreamingResponseBody> exportProducts(
+            @RequestParam(defaultValue = "NDJSON") ProductExportFormat format) {
+        MediaType contentType = switch (format) {
+            case JSON -> MediaType.APPLICATION_JSON;
+            case NDJSON -> MediaType.APPLICATION_NDJSON;
+            case CSV -> new MediaType("text", "csv", StandardCharsets.UTF_8);
+        };
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("products." + format.name().toLowerCase())
+                        .build()
+                        .toString())
+                .body(outputStream -> productExportService.export(format, outputStream));
+    }
+}
@@ -1,10 +1,18 @@
 package com.example.demo.product.controller;
 
+import com.example.demo.catalog.service.CatalogVersionService;
+import com.example.demo.common.pagination.CursorPage;
+import com.example.demo.product.dto.ProductExportFormat;
+import com.example.demo.product.dto.ProductFilterRequest;
 import com.example.demo.product.dto.ProductRequest;
 import com.example.demo.product.dto.ProductResponse;
+import com.example.demo.product.dto.ProductSearchResponse;
+import com.example.demo.product.dto.ProductSuggestionResponse;
 import com.example.demo.product.dto.ProductUpdateRequest;
 import com.example.demo.product.entity.ProductStatus;
+import com.example.demo.product.service.ProductExportService;
 import com.example.demo.product.service.ProductService;
+import com.example.demo.product.service.ProductViewCounter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -14,12 +22,17 @@ import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/products")
@@ -28,6 +41,9 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final CatalogVersionService catalogVersionService;
+    private final ProductExportService productExportService;
+    private final ProductViewCounter productViewCounter;
 
     @PostMapping
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
@@ -57,9 +73,16 @@ public class ProductController {
 
     @GetMapping("/{productId}")
     @Operation(summary = "Lấy thông tin sản phẩm theo ID")
-    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long productId) {
+    public ResponseEntity<ProductResponse> getProductById(@PathVariable Long productId, WebRequest webRequest) {
+        // Trả 304 trước khi dựng response nếu client đã có bản mới nhất
+        String eTag = catalogVersionService.productETag(productId);
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            productViewCounter.record(productId);
+            return null;
+        }
         ProductResponse response = productService.getProductById(productId);
-        return ResponseEntity.ok(response);
+        productViewCounter.record(productId);
+        return ResponseEntity.ok().eTag(eTag).body(response);
     }
 
     @GetMapping
@@ -68,11 +91,30 @@ public class ProductController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDir) {
+            @RequestParam(defaultValue = "DESC") String sortDir,
+            WebRequest webRequest) {
+        String eTag = catalogVersionService.listingETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
         Sort sort = sortDir.equalsIgnoreCase("ASC") ? Sort.by(sortBy).ascending() : Sort.by(sortBy).descending();
         Pageable pageable = PageRequest.of(page, size, sort);
         Page<ProductResponse> products = productService.getAllProducts(pageable);
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().eTag(eTag).body(products);
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Lấy danh sách sản phẩm theo cursor", description = "Keyset pagination theo (createdAt, id), không trả total")
+    public ResponseEntity<CursorPage<ProductResponse>> getProductsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        String eTag = catalogVersionService.listingETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
+        CursorPage<ProductResponse> products = productService.getProductsByCursor(cursor, size);
+        return ResponseEntity.ok().eTag(eTag).body(products);
     }
 
     @GetMapping("/search")
@@ -86,15 +128,62 @@ public class ProductController {
         return ResponseEntity.ok(products);
     }
 
+    @GetMapping("/faceted-search")
+    @Operation(summary = "Tìm kiếm sản phẩm kèm facet", description = "Trả về trang kết quả và số lượng theo danh mục, thương hiệu, khoảng giá. " +
+            "Lọc thuộc tính variant: attr=color:red&attr=size:M (cùng một variant khớp mọi cặp)")
+    public ResponseEntity<ProductSearchResponse> facetedSearch(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) Long categoryId,
+            @RequestParam(required = false) Long brandId,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "false") boolean inStockOnly,
+            @RequestParam(name = "attr", required = false) List<String> attributes,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        ProductFilterRequest filter = ProductFilterRequest.builder()
+                .keyword(keyword)
+                .categoryId(categoryId)
+                .brandId(brandId)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .inStockOnly(inStockOnly)
+                .attributes(parseAttributes(attributes))
+                .build();
+        Pageable pageable = PageRequest.of(page, size);
+        ProductSearchResponse response = productService.facetedSearch(filter, pageable);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/most-viewed")
+    @Operation(summary = "Sản phẩm xem nhiều nhất", description = "Theo lượt xem trang chi tiết, cập nhật theo chu kỳ flush (mặc định 10 giây)")
+    public ResponseEntity<List<ProductResponse>> getMostViewed(@RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(productService.getMostViewed(limit));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(summary = "Gợi ý tìm kiếm (autocomplete)", description = "Theo tiền tố tên sản phẩm, SKU hoặc tên danh mục")
+    public ResponseEntity<List<ProductSuggestionResponse>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        List<ProductSuggestionResponse> suggestions = productService.suggest(q, limit);
+        return ResponseEntity.ok(suggestions);
+    }
+
     @GetMapping("/category/{category}")
     @Operation(summary = "Lấy sản phẩm theo danh mục")
     public ResponseEntity<Page<ProductResponse>> getProductsByCategory(
             @PathVariable String category,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
+        String eTag = catalogVersionService.listingETag();
+        if (eTag != null && webRequest.checkNotModified(eTag)) {
+            return null;
+        }
         Pageable pageable = PageRequest.of(page, size);
         Page<ProductResponse> products = productService.getProductsByCategory(category, pageable);
-        return ResponseEntity.ok(products);
+        return ResponseEntity.ok().eTag(eTag).body(products);
     }
 
     @GetMapping("/price-range")
@@ -122,12 +211,15 @@ public class ProductController {
 
     @GetMapping("/my-products/list")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
-    @Operation(summary = "Lấy danh sách sản phẩm của tôi (không phân trang)")
-    public ResponseEntity<List<ProductResponse>> getMyProductsList() {
-        List<ProductResponse> products = productService.getMyProductsList();
-        return ResponseEntity.ok(products);
+    @Operation(summary = "Lấy danh sách sản phẩm của tôi (không phân trang)", description = "Stream mảng JSON, không giữ cả danh sách trong bộ nhớ")
+    public ResponseEntity<StreamingResponseBody> getMyProductsList() {
+        // Tạm thời trả về tất cả products
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(outputStream -> productExportService.export(ProductExportFormat.JSON, outputStream));
     }
 
+
     @PatchMapping("/{productId}/status")
     @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
     @Operation(summary = "Cập nhật trạng thái sản phẩm", description = "ACTIVE, INACTIVE, OUT_OF_STOCK")
@@ -137,5 +229,20 @@ public class ProductController {
         ProductResponse response = productService.updateProductStatus(productId, status);
         return ResponseEntity.ok(response);
     }
-}
 
+    // "tên:giá trị" → map; null nếu không có filter
+    private Map<String, String> parseAttributes(List<String> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return null;
+        }
+        Map<String, String> result = new LinkedHashMap<>();
+        for (String attribute : attributes) {
+            int separator = attribute.indexOf(':');
+            if (separator <= 0 || separator == attribute.length() - 1) {
+                throw new RuntimeException("Bộ lọc thuộc tính phải có dạng tên:giá trị");
+            }
+            result.put(attribute.substring(0, separator).trim(), attribute.substring(separator + 1).trim());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PriceRangeCount {
+    private BigDecimal minPrice; // null = không giới hạn dưới
+    private BigDecimal maxPrice; // null = không giới hạn trên
+    private long count;
+}
@@ -0,0 +1,7 @@
+package com.example.demo.product.dto;
+
+public enum ProductExportFormat {
+    JSON,   // một mảng JSON, giữ tương thích với /my-products/list
+    NDJSON, // mỗi dòng một object JSON
+    CSV
+}
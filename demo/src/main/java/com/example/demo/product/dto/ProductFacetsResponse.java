@@ -0,0 +1,22 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFacetsResponse {
+    @Builder.Default
+    private List<FacetCount> categories = new ArrayList<>();
+    @Builder.Default
+    private List<FacetCount> brands = new ArrayList<>();
+    @Builder.Default
+    private List<PriceRangeCount> priceRanges = new ArrayList<>();
+}
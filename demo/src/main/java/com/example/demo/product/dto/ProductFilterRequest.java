@@ -0,0 +1,24 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+// Bộ lọc cho tìm kiếm có facet, mọi field đều tùy chọn
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductFilterRequest {
+    private String keyword;
+    private Long categoryId;
+    private Long brandId;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private boolean inStockOnly;
+    private Map<String, String> attributes; // cùng một variant phải khớp mọi cặp, vd. {color=red, size=M}
+}
@@ -0,0 +1,15 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportError {
+    private long row; // số dòng trong file (tính cả header với CSV)
+    private String message;
+}
@@ -0,0 +1,31 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportJobResponse {
+    private String jobId;
+    private String fileName;
+    private Status status;
+    private long processedRows;
+    private long importedProducts;
+    private long importedVariants;
+    private long failedRows;
+    private double rowsPerSecond;
+    private List<ProductImportError> errors; // tối đa ProductImportService.MAX_REPORTED_ERRORS lỗi đầu tiên
+    private LocalDateTime startedAt;
+    private LocalDateTime finishedAt;
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
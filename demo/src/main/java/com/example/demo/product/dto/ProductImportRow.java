@@ -0,0 +1,30 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+// Một dòng import = một variant; các cột sản phẩm lặp lại trên mọi dòng cùng product sku
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductImportRow {
+    private String sku;
+    private String name;
+    private String description;
+    private BigDecimal listPrice;
+    private BigDecimal price;
+    private String categorySlug;
+    private String brand;
+    private String variantSku;
+    private BigDecimal variantPrice;
+    private Integer variantStock;
+    private Map<String, String> attributes;
+    private List<String> images;
+}
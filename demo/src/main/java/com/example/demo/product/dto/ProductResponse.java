@@ -20,11 +20,18 @@ public class ProductResponse {
     private String description;
     private BigDecimal price;
     private Integer stock;
+    private Boolean inStock;
+    private BigDecimal minVariantPrice;
+    private BigDecimal maxVariantPrice;
     private Long sellerId;
     private String sellerName;
     private String sellerEmail;
     private String category;
+    private Double averageRating; // null nếu chưa có đánh giá
+    private Long reviewCount;
+    private List<Long> ratingHistogram; // chỉ có ở trang chi tiết, [i] = số đánh giá (i + 1) sao
     private List<String> images;
+    private List<ProductVariantResponse> variants; // chỉ có ở trang chi tiết
     private ProductStatus status;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
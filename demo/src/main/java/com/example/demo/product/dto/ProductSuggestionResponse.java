@@ -0,0 +1,23 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSuggestionResponse {
+    private String text;
+    private Type type;
+    private Long id; // productId hoặc categoryId tùy type
+    private String slug;
+
+    public enum Type {
+        PRODUCT,
+        SKU,
+        CATEGORY
+    }
+}
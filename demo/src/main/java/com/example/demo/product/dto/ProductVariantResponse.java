@@ -0,0 +1,21 @@
+package com.example.demo.product.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductVariantResponse {
+    private Long id;
+    private String sku;
+    private BigDecimal price;
+    private Integer stock;
+    private Map<String, String> attributes; // size, color, etc.
+}
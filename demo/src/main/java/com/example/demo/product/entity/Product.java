@@ -16,7 +16,10 @@ import java.time.LocalDateTime;
     @Index(name = "idx_product_sku", columnList = "sku"),
     @Index(name = "idx_product_slug", columnList = "slug"),
     @Index(name = "idx_product_category", columnList = "category_id"),
-    @Index(name = "idx_product_brand", columnList = "brand_id")
+    @Index(name = "idx_product_brand", columnList = "brand_id"),
+    @Index(name = "idx_product_status_created", columnList = "status, created_at, id"),
+    @Index(name = "idx_product_status_in_stock", columnList = "status, in_stock"),
+    @Index(name = "idx_product_status_view_count", columnList = "status, view_count")
 })
 @Data
 @Builder
@@ -24,7 +27,8 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class Product {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "products_seq")
+    @SequenceGenerator(name = "products_seq", sequenceName = "products_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, unique = true)
@@ -57,6 +61,29 @@ public class Product {
     @Builder.Default
     private ProductStatus status = ProductStatus.ACTIVE;
 
+    // Tổng hợp từ variants, chỉ cập nhật bằng query (InventoryService, import). Variant thường: cùng transaction với
+    // thay đổi stock. Variant hot / chia bucket: khi phần đã giữ được ghi về cột stock (HotStockReconciler,
+    // StockBucketRollup, mặc định mỗi 2s), nên in_stock có thể trễ tới một chu kỳ; checkout luôn kiểm tra stock thật.
+    // updatable = false để việc lưu Product không ghi đè số liệu bằng giá trị cũ đang nằm trong entity
+    @Column(updatable = false)
+    @Builder.Default
+    private Integer totalStock = 0;
+
+    @Column(precision = 19, scale = 2, updatable = false)
+    private BigDecimal minVariantPrice;
+
+    @Column(precision = 19, scale = 2, updatable = false)
+    private BigDecimal maxVariantPrice;
+
+    @Column(updatable = false)
+    @Builder.Default
+    private Boolean inStock = false;
+
+    // Chỉ ProductViewCounter cộng dồn (batch UPDATE), entity không ghi đè
+    @Column(updatable = false)
+    @Builder.Default
+    private Long viewCount = 0L;
+
     @Column(nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
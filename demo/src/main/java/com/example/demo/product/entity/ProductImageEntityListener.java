@@ -0,0 +1,36 @@
+package com.example.demo.product.entity;
+
+import com.example.demo.product.event.ProductImageChangedEvent;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+// Hibernate lấy listener từ Spring container nên inject được publisher
+@Component
+@RequiredArgsConstructor
+public class ProductImageEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(ProductImage image) {
+        Long productId = productIdOf(image.getProduct());
+        if (productId != null) {
+            eventPublisher.publishEvent(new ProductImageChangedEvent(productId));
+        }
+    }
+
+    // Không khởi tạo lazy proxy của sản phẩm
+    private Long productIdOf(Product product) {
+        if (product instanceof HibernateProxy proxy) {
+            return (Long) proxy.getHibernateLazyInitializer().getIdentifier();
+        }
+        return product != null ? product.getId() : null;
+    }
+}
@@ -5,6 +5,8 @@ import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -22,7 +24,8 @@ import java.util.Map;
 @AllArgsConstructor
 public class ProductVariant {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "product_variants_seq")
+    @SequenceGenerator(name = "product_variants_seq", sequenceName = "product_variants_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -38,11 +41,22 @@ public class ProductVariant {
     @Column(nullable = false, precision = 19, scale = 2)
     private BigDecimal price;
 
-    // Attributes như size, color, etc. lưu dạng JSON
-    @ElementCollection
-    @CollectionTable(name = "variant_attributes", joinColumns = @JoinColumn(name = "variant_id"))
-    @MapKeyColumn(name = "attribute_name")
-    @Column(name = "attribute_value")
+    // Variant bán chạy (flash sale): stock khả dụng giữ trên Redis (mọi node định tuyến theo cột này)
+    // và phần đã giữ được ghi về cột stock theo lô (HotStockReconciler). Default false trong schema.sql
+    @Column(name = "hot_stock")
+    @Builder.Default
+    private Boolean hotStock = false;
+
+    // > 1: stock chia thành các dòng stock_buckets, cột stock là tổng được ghi về định kỳ (StockBucketRollup).
+    // Default 0 trong schema.sql
+    @Column(name = "bucket_count")
+    @Builder.Default
+    private Integer bucketCount = 0;
+
+    // Attributes như size, color, etc. lưu dạng JSONB ngay trên dòng variant (load cùng variant, không query thêm).
+    // GIN index jsonb_path_ops (schema.sql) phục vụ lọc kiểu attributes @> '{"color":"red","size":"M"}'
+    @JdbcTypeCode(SqlTypes.JSON)
+    @Column(columnDefinition = "jsonb")
     @Builder.Default
     private Map<String, String> attributes = new HashMap<>();
 
@@ -0,0 +1,5 @@
+package com.example.demo.product.event;
+
+// Phát ra khi dữ liệu sản phẩm thay đổi (tạo, sửa, xóa, đổi trạng thái)
+public record ProductChangedEvent(Long productId) {
+}
@@ -0,0 +1,5 @@
+package com.example.demo.product.event;
+
+// Phát ra khi ảnh sản phẩm được thêm, sửa, xóa (ProductImageEntityListener)
+public record ProductImageChangedEvent(Long productId) {
+}
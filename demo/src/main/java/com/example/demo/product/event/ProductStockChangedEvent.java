@@ -0,0 +1,6 @@
+package com.example.demo.product.event;
+
+// Phát ra khi tồn kho tổng hợp của sản phẩm đổi (InventoryService), thay cho ProductChangedEvent
+// để đổi tồn kho không kéo theo dựng lại index gợi ý / facet từ DB
+public record ProductStockChangedEvent(Long productId, boolean inStock) {
+}
@@ -0,0 +1,5 @@
+package com.example.demo.product.event;
+
+// Phát ra sau một job import hàng loạt, thay cho hàng nghìn ProductChangedEvent
+public record ProductsImportedEvent(long productCount, long variantCount) {
+}
@@ -0,0 +1,7 @@
+package com.example.demo.product.repository;
+
+// Projection cho câu lệnh cộng dồn stock theo lô: variant đã cập nhật và sản phẩm của nó
+public interface AppliedStockView {
+    Long getId();
+    Long getProductId();
+}
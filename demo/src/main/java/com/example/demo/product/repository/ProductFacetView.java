@@ -0,0 +1,12 @@
+package com.example.demo.product.repository;
+
+import java.math.BigDecimal;
+
+// Projection cho facet index: chỉ các cột dùng để lọc/đếm
+public interface ProductFacetView {
+    Long getId();
+    Long getCategoryId();
+    Long getBrandId();
+    BigDecimal getPrice();
+    Boolean getInStock();
+}
@@ -4,11 +4,14 @@ import com.example.demo.product.entity.Product;
 import com.example.demo.product.entity.ProductImage;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductImageRepository extends JpaRepository<ProductImage, Long> {
     List<ProductImage> findByProduct(Product product);
     Optional<ProductImage> findByProductAndIsPrimaryTrue(Product product);
+    List<ProductImage> findByProductIdInOrderByDisplayOrderAscIdAsc(Collection<Long> productIds);
+    List<ProductImage> findByProductIdInAndIsPrimaryTrue(Collection<Long> productIds);
 }
 
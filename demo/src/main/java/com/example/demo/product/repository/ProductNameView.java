@@ -0,0 +1,9 @@
+package com.example.demo.product.repository;
+
+// Projection nhẹ dùng để dựng index gợi ý tìm kiếm
+public interface ProductNameView {
+    Long getId();
+    String getName();
+    String getSku();
+    String getSlug();
+}
@@ -4,15 +4,24 @@ import com.example.demo.catalog.entity.Brand;
 import com.example.demo.catalog.entity.Category;
 import com.example.demo.product.entity.Product;
 import com.example.demo.product.entity.ProductStatus;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
     
@@ -21,18 +30,80 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
     
     // Tìm sản phẩm đang active
     Page<Product> findByStatus(ProductStatus status, Pageable pageable);
+
+    // Dự phòng cho bảng xếp hạng lượt xem khi ZSET trên Redis trống
+    List<Product> findByStatusOrderByViewCountDesc(ProductStatus status, Pageable pageable);
+
+    // Keyset pagination theo (created_at, id): không OFFSET, không count(*)
+    @Query(value = "SELECT p.* FROM products p WHERE p.status = :status " +
+                   "ORDER BY p.created_at DESC, p.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Product> findFirstByStatusKeyset(@Param("status") String status, @Param("limit") int limit);
+
+    @Query(value = "SELECT p.* FROM products p WHERE p.status = :status " +
+                   "AND (p.created_at, p.id) < (:createdAt, :id) " +
+                   "ORDER BY p.created_at DESC, p.id DESC LIMIT :limit",
+           nativeQuery = true)
+    List<Product> findByStatusKeysetAfter(@Param("status") String status,
+                                          @Param("createdAt") LocalDateTime createdAt,
+                                          @Param("id") Long id,
+                                          @Param("limit") int limit);
+
+    // Chỉ lấy các cột cần cho autocomplete
+    @Query("SELECT p.id AS id, p.name AS name, p.sku AS sku, p.slug AS slug FROM Product p WHERE p.status = :status")
+    List<ProductNameView> findNameViewsByStatus(@Param("status") ProductStatus status);
     
-    // Tìm kiếm sản phẩm theo tên hoặc mô tả
-    @Query("SELECT p FROM Product p WHERE " +
-           "(LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%')) OR " +
-           "LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%'))) " +
-           "AND p.status = :status")
-    Page<Product> searchProducts(@Param("keyword") String keyword, 
-                                  @Param("status") ProductStatus status, 
-                                  Pageable pageable);
+    // Dữ liệu cho facet index (bitset theo category/brand/khoảng giá)
+    @Query("SELECT p.id AS id, p.category.id AS categoryId, b.id AS brandId, p.price AS price, p.inStock AS inStock " +
+           "FROM Product p LEFT JOIN p.brand b WHERE p.status = :status")
+    List<ProductFacetView> findFacetViewsByStatus(@Param("status") ProductStatus status);
+
+    @Query("SELECT p.id AS id, p.category.id AS categoryId, b.id AS brandId, p.price AS price, p.inStock AS inStock " +
+           "FROM Product p LEFT JOIN p.brand b WHERE p.id = :id AND p.status = :status")
+    Optional<ProductFacetView> findFacetViewByIdAndStatus(@Param("id") Long id, @Param("status") ProductStatus status);
+
+    // Id các sản phẩm khớp keyword, dùng để giao với bitset khi đếm facet
+    @Query(value = "SELECT p.id FROM products p " +
+                   "WHERE p.search_vector @@ websearch_to_tsquery('simple', :keyword) AND p.status = :status",
+           nativeQuery = true)
+    List<Long> findIdsByKeyword(@Param("keyword") String keyword, @Param("status") String status);
+
+    // Id các sản phẩm có ít nhất một variant chứa mọi cặp thuộc tính (JSON object), đi qua GIN index của attributes
+    @Query(value = "SELECT DISTINCT v.product_id FROM product_variants v JOIN products p ON p.id = v.product_id " +
+                   "WHERE v.attributes @> CAST(:attributes AS jsonb) AND p.status = :status",
+           nativeQuery = true)
+    List<Long> findIdsByAttributes(@Param("attributes") String attributes, @Param("status") String status);
+
+    // Full-text search trên cột search_vector (GIN index, xem schema.sql), xếp theo độ liên quan
+    @Query(value = "SELECT p.* FROM products p " +
+                   "WHERE p.search_vector @@ websearch_to_tsquery('simple', :keyword) " +
+                   "AND p.status = :status " +
+                   "ORDER BY ts_rank(p.search_vector, websearch_to_tsquery('simple', :keyword)) DESC, p.id DESC",
+           countQuery = "SELECT count(*) FROM products p " +
+                        "WHERE p.search_vector @@ websearch_to_tsquery('simple', :keyword) " +
+                        "AND p.status = :status",
+           nativeQuery = true)
+    Page<Product> searchProducts(@Param("keyword") String keyword,
+                                 @Param("status") String status,
+                                 Pageable pageable);
     
+    // Duyệt toàn bộ bảng bằng server-side cursor (Postgres chỉ dùng fetch size khi đang trong transaction)
+    @QueryHints({
+        @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Product p ORDER BY p.id")
+    Stream<Product> streamAll();
+
+    // Version cho ETag, không load cả entity
+    @Query("SELECT p.updatedAt FROM Product p WHERE p.id = :id")
+    Optional<LocalDateTime> findUpdatedAtById(@Param("id") Long id);
+
     // Tìm sản phẩm theo category
     Page<Product> findByCategoryAndStatus(Category category, ProductStatus status, Pageable pageable);
+
+    // Tìm sản phẩm trong cả cây con của category (danh sách id lấy từ CategoryTreeCache)
+    Page<Product> findByCategoryIdInAndStatus(Collection<Long> categoryIds, ProductStatus status, Pageable pageable);
     
     // Tìm sản phẩm theo brand
     Page<Product> findByBrandAndStatus(Brand brand, ProductStatus status, Pageable pageable);
@@ -46,20 +117,78 @@ public interface ProductRepository extends JpaRepository<Product, Long> {
                                     @Param("status") ProductStatus status,
                                     Pageable pageable);
     
-    // Tìm kiếm nâng cao với nhiều filters
-    @Query("SELECT p FROM Product p WHERE " +
-           "(:category IS NULL OR p.category = :category) AND " +
-           "(:brand IS NULL OR p.brand = :brand) AND " +
-           "(:minPrice IS NULL OR p.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR p.price <= :maxPrice) AND " +
-           "(:keyword IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%'))) AND " +
-           "p.status = :status")
-    Page<Product> searchWithFilters(@Param("category") Category category,
-                                     @Param("brand") Brand brand,
+    // Tìm kiếm nâng cao với nhiều filters (keyword dùng full-text search)
+    @Query(value = "SELECT p.* FROM products p WHERE " +
+                   "(CAST(:categoryId AS bigint) IS NULL OR p.category_id = :categoryId) AND " +
+                   "(CAST(:brandId AS bigint) IS NULL OR p.brand_id = :brandId) AND " +
+                   "(CAST(:minPrice AS numeric) IS NULL OR p.price >= :minPrice) AND " +
+                   "(CAST(:maxPrice AS numeric) IS NULL OR p.price <= :maxPrice) AND " +
+                   "(CAST(:keyword AS text) IS NULL OR p.search_vector @@ websearch_to_tsquery('simple', CAST(:keyword AS text))) AND " +
+                   "(:inStockOnly = false OR p.in_stock = true) AND " +
+                   "(CAST(:attributes AS text) IS NULL OR p.id IN (SELECT v.product_id FROM product_variants v " +
+                   "WHERE v.attributes @> CAST(:attributes AS jsonb))) AND " +
+                   "p.status = :status " +
+                   "ORDER BY CASE WHEN CAST(:keyword AS text) IS NULL THEN 0 " +
+                   "ELSE ts_rank(p.search_vector, websearch_to_tsquery('simple', CAST(:keyword AS text))) END DESC, " +
+                   "p.created_at DESC, p.id DESC",
+           countQuery = "SELECT count(*) FROM products p WHERE " +
+                        "(CAST(:categoryId AS bigint) IS NULL OR p.category_id = :categoryId) AND " +
+                        "(CAST(:brandId AS bigint) IS NULL OR p.brand_id = :brandId) AND " +
+                        "(CAST(:minPrice AS numeric) IS NULL OR p.price >= :minPrice) AND " +
+                        "(CAST(:maxPrice AS numeric) IS NULL OR p.price <= :maxPrice) AND " +
+                        "(CAST(:keyword AS text) IS NULL OR p.search_vector @@ websearch_to_tsquery('simple', CAST(:keyword AS text))) AND " +
+                        "(:inStockOnly = false OR p.in_stock = true) AND " +
+                        "(CAST(:attributes AS text) IS NULL OR p.id IN (SELECT v.product_id FROM product_variants v " +
+                        "WHERE v.attributes @> CAST(:attributes AS jsonb))) AND " +
+                        "p.status = :status",
+           nativeQuery = true)
+    Page<Product> searchWithFilters(@Param("categoryId") Long categoryId,
+                                     @Param("brandId") Long brandId,
                                      @Param("minPrice") BigDecimal minPrice,
                                      @Param("maxPrice") BigDecimal maxPrice,
                                      @Param("keyword") String keyword,
-                                     @Param("status") ProductStatus status,
+                                     @Param("inStockOnly") boolean inStockOnly,
+                                     @Param("attributes") String attributes,
+                                     @Param("status") String status,
                                      Pageable pageable);
+
+    // Cộng dồn thay đổi stock của một lô sản phẩm trong cùng transaction với UPDATE variants (SET dùng giá trị cũ
+    // của cột nên in_stock tính đúng). Khóa các dòng products theo id tăng dần, sau các dòng variants, để hai checkout
+    // không deadlock; updated_at đổi theo để ETag của sản phẩm đổi khi tồn kho đổi. ids/deltas là mảng Postgres dạng '{1,2,3}'
+    @Query(value = "WITH requested AS (SELECT * FROM unnest(CAST(:ids AS bigint[]), CAST(:deltas AS int[])) AS r(id, delta)), " +
+                   "locked AS MATERIALIZED (SELECT p.id FROM products p " +
+                   "WHERE p.id IN (SELECT id FROM requested) ORDER BY p.id FOR NO KEY UPDATE) " +
+                   "UPDATE products p SET total_stock = COALESCE(p.total_stock, 0) + r.delta, " +
+                   "in_stock = COALESCE(p.total_stock, 0) + r.delta > 0, updated_at = now() " +
+                   "FROM locked l JOIN requested r ON r.id = l.id WHERE p.id = l.id " +
+                   "RETURNING p.id AS id, p.in_stock AS \"inStock\"",
+           nativeQuery = true)
+    List<ProductStockView> applyStockDeltas(@Param("ids") String ids, @Param("deltas") String deltas);
+
+    // Tính lại số liệu tổng hợp (tồn kho, khoảng giá) từ bảng variants cho một lô sản phẩm, khóa như trên.
+    // Dùng khi stock variant được ghi lại theo tổng (gộp bucket) thay vì theo delta
+    @Query(value = "WITH locked AS MATERIALIZED (SELECT p.id FROM products p " +
+                   "WHERE p.id = ANY(CAST(:ids AS bigint[])) ORDER BY p.id FOR NO KEY UPDATE), " +
+                   "s AS (SELECT l.id, COALESCE(SUM(v.stock), 0) AS total_stock, " +
+                   "MIN(v.price) AS min_price, MAX(v.price) AS max_price " +
+                   "FROM locked l LEFT JOIN product_variants v ON v.product_id = l.id GROUP BY l.id) " +
+                   "UPDATE products p SET total_stock = s.total_stock, in_stock = s.total_stock > 0, " +
+                   "min_variant_price = s.min_price, max_variant_price = s.max_price, updated_at = now() " +
+                   "FROM s WHERE p.id = s.id " +
+                   "RETURNING p.id AS id, p.in_stock AS \"inStock\"",
+           nativeQuery = true)
+    List<ProductStockView> refreshStock(@Param("ids") String ids);
+
+    // Tính lại toàn bộ số liệu tổng hợp từ bảng variants
+    @Modifying
+    @Query(value = "UPDATE products p SET total_stock = s.total_stock, min_variant_price = s.min_price, " +
+                   "max_variant_price = s.max_price, in_stock = s.total_stock > 0, updated_at = now() " +
+                   "FROM (SELECT pr.id AS product_id, COALESCE(SUM(v.stock), 0) AS total_stock, " +
+                   "MIN(v.price) AS min_price, MAX(v.price) AS max_price " +
+                   "FROM products pr LEFT JOIN product_variants v ON v.product_id = pr.id " +
+                   "WHERE pr.id IN (:productIds) GROUP BY pr.id) s " +
+                   "WHERE p.id = s.product_id",
+           nativeQuery = true)
+    int refreshStockSummary(@Param("productIds") Collection<Long> productIds);
 }
 
@@ -0,0 +1,7 @@
+package com.example.demo.product.repository;
+
+// Projection cho các câu lệnh cập nhật tồn kho sản phẩm theo lô: in_stock sau khi cập nhật
+public interface ProductStockView {
+    Long getId();
+    Boolean getInStock();
+}
@@ -9,22 +9,89 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import jakarta.persistence.LockModeType;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface ProductVariantRepository extends JpaRepository<ProductVariant, Long> {
     Optional<ProductVariant> findBySku(String sku);
     List<ProductVariant> findByProduct(Product product);
+
+    // Load variants (attributes nằm trên cùng dòng) cho nhiều sản phẩm trong 1 query
+    @Query("SELECT v FROM ProductVariant v WHERE v.product.id IN :productIds ORDER BY v.id")
+    List<ProductVariant> findByProductIdIn(@Param("productIds") Collection<Long> productIds);
+
+    // Variant kèm sản phẩm cho nhiều id (giỏ hàng trên Redis chỉ giữ variantId)
+    @Query("SELECT v FROM ProductVariant v JOIN FETCH v.product WHERE v.id IN :ids")
+    List<ProductVariant> findWithProductByIdIn(@Param("ids") Collection<Long> ids);
     
     // Optimistic locking cho stock update
     @Lock(LockModeType.OPTIMISTIC)
     Optional<ProductVariant> findById(Long id);
     
-    // Giảm stock với điều kiện
+    // Chế độ lưu stock của các variant trong giỏ, đọc dưới khóa FOR KEY SHARE giữ tới hết transaction checkout:
+    // các checkout không chặn nhau, còn đổi chế độ / nạp lại counter Redis (FOR UPDATE) phải chờ checkout đang chạy
+    // xong, và checkout sau đó thấy chế độ mới
+    @Query(value = "SELECT v.id AS id, COALESCE(v.hot_stock, false) AS \"hotStock\", " +
+                   "COALESCE(v.bucket_count, 0) AS \"bucketCount\" FROM product_variants v " +
+                   "WHERE v.id = ANY(CAST(:ids AS bigint[])) ORDER BY v.id FOR KEY SHARE",
+           nativeQuery = true)
+    List<VariantStockModeView> findStockModesForShare(@Param("ids") String ids);
+
+    // Giảm stock cho nhiều variant trong một câu lệnh. ids/quantities là mảng Postgres dạng '{1,2,3}'.
+    // Khóa dòng theo id tăng dần (CTE MATERIALIZED + ORDER BY ...) để hai checkout cùng chạm
+    // các variant giống nhau luôn khóa cùng thứ tự, không deadlock. FOR NO KEY UPDATE vì checkout đã giữ
+    // FOR KEY SHARE trên các dòng này (FOR UPDATE sẽ deadlock giữa hai checkout). Chỉ giảm variant vẫn lưu stock
+    // trên dòng này (không hot, không chia bucket) tại thời điểm khóa. Trả về id các variant đã giảm được;
+    // variant vắng mặt là variant không đủ stock hoặc vừa đổi chế độ
+    @Query(value = "WITH requested AS (SELECT * FROM unnest(CAST(:ids AS bigint[]), CAST(:quantities AS int[])) AS r(id, quantity)), " +
+                   "locked AS MATERIALIZED (SELECT v.id FROM product_variants v " +
+                   "WHERE v.id IN (SELECT id FROM requested) ORDER BY v.id FOR NO KEY UPDATE) " +
+                   "UPDATE product_variants v SET stock = v.stock - r.quantity " +
+                   "FROM locked l JOIN requested r ON r.id = l.id " +
+                   "WHERE v.id = l.id AND v.stock >= r.quantity AND v.bucket_count <= 1 AND v.hot_stock = false " +
+                   "RETURNING v.id",
+           nativeQuery = true)
+    List<Long> decreaseStockBatch(@Param("ids") String ids, @Param("quantities") String quantities);
+
+    // Cộng dồn delta (âm hoặc dương) cho nhiều variant, khóa theo id tăng dần như trên. Phần giảm đã được giữ trước
+    // trên Redis nên bình thường luôn đủ; variant mà delta làm stock âm (counter lệch với DB) bị bỏ qua và vắng mặt
+    // trong kết quả. Trả về (id, product_id) của các variant đã cập nhật.
+    // FOR NO KEY UPDATE: không chặn checkout đang giữ FOR KEY SHARE / INSERT stock_reservations (kiểm tra FK)
+    @Query(value = "WITH requested AS (SELECT * FROM unnest(CAST(:ids AS bigint[]), CAST(:deltas AS int[])) AS r(id, delta)), " +
+                   "locked AS MATERIALIZED (SELECT v.id FROM product_variants v " +
+                   "WHERE v.id IN (SELECT id FROM requested) ORDER BY v.id FOR NO KEY UPDATE) " +
+                   "UPDATE product_variants v SET stock = v.stock + r.delta " +
+                   "FROM locked l JOIN requested r ON r.id = l.id " +
+                   "WHERE v.id = l.id AND v.stock + r.delta >= 0 RETURNING v.id AS id, v.product_id AS \"productId\"",
+           nativeQuery = true)
+    List<AppliedStockView> applyStockDeltas(@Param("ids") String ids, @Param("deltas") String deltas);
+
+    // Khóa các variant trước khi nhận reservation của chúng (reconciler), cùng thứ tự khóa với đổi chế độ hot:
+    // variant trước, reservation sau
+    @Query(value = "SELECT v.id FROM product_variants v WHERE v.id = ANY(CAST(:ids AS bigint[])) " +
+                   "ORDER BY v.id FOR NO KEY UPDATE",
+           nativeQuery = true)
+    List<Long> lockForStockUpdate(@Param("ids") String ids);
+
+    @Query("SELECT v.id FROM ProductVariant v WHERE v.hotStock = true")
+    List<Long> findHotVariantIds();
+
+    // Đổi chế độ hot của variant (HotStockService quản lý counter trên Redis tương ứng)
     @Modifying
-    @Query("UPDATE ProductVariant v SET v.stock = v.stock - :quantity WHERE v.id = :id AND v.stock >= :quantity")
-    int decreaseStock(@Param("id") Long id, @Param("quantity") Integer quantity);
-    
+    @Query("UPDATE ProductVariant v SET v.hotStock = :hot WHERE v.id = :id")
+    int updateHotStock(@Param("id") Long id, @Param("hot") boolean hot);
+
+    // Chia/gộp bucket: cột stock ghi ngay bằng tổng hiện tại
+    @Modifying
+    @Query("UPDATE ProductVariant v SET v.bucketCount = :bucketCount, v.stock = :stock WHERE v.id = :id")
+    int updateBuckets(@Param("id") Long id, @Param("bucketCount") int bucketCount, @Param("stock") int stock);
+
+    // Khóa dòng variant khi đổi chế độ lưu stock hoặc nạp lại counter Redis. Ghi rõ FOR UPDATE (không dùng
+    // PESSIMISTIC_WRITE, có thể thành FOR NO KEY UPDATE) vì phải chờ FOR KEY SHARE của các checkout đang chạy
+    @Query(value = "SELECT * FROM product_variants WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<ProductVariant> findByIdForUpdate(@Param("id") Long id);
+
     // Tăng stock
     @Modifying
     @Query("UPDATE ProductVariant v SET v.stock = v.stock + :quantity WHERE v.id = :id")
@@ -0,0 +1,8 @@
+package com.example.demo.product.repository;
+
+// Projection chế độ lưu stock của variant (Redis hay bucket), đọc dưới khóa dòng lúc checkout / trả hàng
+public interface VariantStockModeView {
+    Long getId();
+    Boolean getHotStock();
+    Integer getBucketCount();
+}
@@ -0,0 +1,46 @@
+package com.example.demo.product.service;
+
+import com.example.demo.cache.CacheNames;
+import com.example.demo.cache.CacheService;
+import com.example.demo.product.entity.ProductImage;
+import com.example.demo.product.repository.ProductImageRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+// URL ảnh chính theo product id cho giỏ hàng/đơn hàng: L1 (giới hạn cache.local.max-size) → MGET Redis → một IN-query.
+// Sản phẩm không có ảnh chính được cache là "" để không query lại; xóa khi ảnh đổi (ProductImageChangedEvent)
+@Component
+@RequiredArgsConstructor
+public class PrimaryImageResolver {
+
+    private final CacheService cacheService;
+    private final ProductImageRepository productImageRepository;
+
+    @Value("${cache.primary-image.ttl:1h}")
+    private Duration primaryImageTtl;
+
+    public Map<Long, String> resolve(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return cacheService.getAll(CacheNames.PRIMARY_IMAGE, productIds, String.class, primaryImageTtl, this::load);
+    }
+
+    private Map<Long, String> load(Set<Long> productIds) {
+        Map<Long, String> result = new HashMap<>();
+        for (ProductImage image : productImageRepository.findByProductIdInAndIsPrimaryTrue(productIds)) {
+            result.putIfAbsent(image.getProduct().getId(), image.getUrl());
+        }
+        for (Long productId : productIds) {
+            result.putIfAbsent(productId, "");
+        }
+        return result;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.demo.product.service;
+
+import com.example.demo.cache.CacheNames;
+import com.example.demo.cache.CacheService;
+import com.example.demo.product.event.ProductChangedEvent;
+import com.example.demo.product.event.ProductImageChangedEvent;
+import com.example.demo.product.event.ProductStockChangedEvent;
+import com.example.demo.product.event.ProductsImportedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+@Component
+@RequiredArgsConstructor
+public class ProductCacheEvictionListener {
+
+    private final CacheService cacheService;
+
+    // Xóa cache sau khi commit để request đọc song song không nạp lại dữ liệu cũ
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        // Xóa tổng hợp đánh giá trước để chi tiết sản phẩm nạp lại không lấy số sao cũ
+        cacheService.evict(CacheNames.RATING_SUMMARY, event.productId());
+        cacheService.evict(CacheNames.PRODUCT_DETAIL, event.productId());
+    }
+
+    // Tồn kho chỉ nằm trong chi tiết sản phẩm, tổng hợp đánh giá không đổi
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        cacheService.evict(CacheNames.PRODUCT_DETAIL, event.productId());
+    }
+
+    // Ảnh nằm trong chi tiết sản phẩm và ảnh chính trong giỏ hàng
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductImageChanged(ProductImageChangedEvent event) {
+        cacheService.evict(CacheNames.PRIMARY_IMAGE, event.productId());
+        cacheService.evict(CacheNames.PRODUCT_DETAIL, event.productId());
+    }
+
+    // Import có thể thêm variant cho sản phẩm đã có
+    @EventListener
+    public void onProductsImported(ProductsImportedEvent event) {
+        cacheService.evictAll(CacheNames.PRODUCT_DETAIL);
+        cacheService.evictAll(CacheNames.PRIMARY_IMAGE);
+    }
+}
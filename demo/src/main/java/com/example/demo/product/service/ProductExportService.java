@@ -0,0 +1,183 @@
+package com.example.demo.product.service;
+
+import com.example.demo.product.dto.ProductExportFormat;
+import com.example.demo.product.dto.ProductResponse;
+import com.example.demo.product.entity.Product;
+import com.example.demo.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Xuất toàn bộ sản phẩm thẳng ra output stream với bộ nhớ cố định:
+// đọc bằng server-side cursor, dựng response theo từng chunk (ảnh/danh mục batch-load mỗi chunk), clear persistence context sau mỗi chunk
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductExportService {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final String CSV_HEADER = "id,name,price,stock,inStock,status,category,images,createdAt";
+
+    private final ProductRepository productRepository;
+    private final ProductResponseAssembler productResponseAssembler;
+    private final EntityManager entityManager;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+
+    public void export(ProductExportFormat format, OutputStream outputStream) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+        transactionTemplate.executeWithoutResult(status -> {
+            try {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                ChunkWriter chunkWriter = switch (format) {
+                    case JSON -> new JsonArrayWriter(writer);
+                    case NDJSON -> new NdjsonWriter(writer);
+                    case CSV -> new CsvWriter(writer);
+                };
+                long count = writeAll(chunkWriter);
+                chunkWriter.finish();
+                writer.flush();
+                log.info("Đã xuất {} sản phẩm ({})", count, format);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private long writeAll(ChunkWriter chunkWriter) throws IOException {
+        long count = 0;
+        try (Stream<Product> products = productRepository.streamAll()) {
+            Iterator<Product> iterator = products.iterator();
+            List<Product> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE || !iterator.hasNext()) {
+                    for (ProductResponse response : productResponseAssembler.toResponses(chunk)) {
+                        chunkWriter.write(response);
+                    }
+                    chunkWriter.flush();
+                    count += chunk.size();
+                    chunk.clear();
+                    // Bỏ các entity đã xuất khỏi persistence context để heap không tăng theo số dòng
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+
+    private interface ChunkWriter {
+        void write(ProductResponse response) throws IOException;
+
+        void flush() throws IOException;
+
+        default void finish() throws IOException {
+        }
+    }
+
+    private class NdjsonWriter implements ChunkWriter {
+        private final Writer writer;
+
+        NdjsonWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void write(ProductResponse response) throws IOException {
+            writer.write(objectMapper.writeValueAsString(response));
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private class JsonArrayWriter implements ChunkWriter {
+        private final JsonGenerator generator;
+
+        JsonArrayWriter(Writer writer) throws IOException {
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.writeStartArray();
+        }
+
+        @Override
+        public void write(ProductResponse response) throws IOException {
+            // Không flush sau mỗi phần tử, chỉ flush theo chunk
+            objectMapper.writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                    .writeValue(generator, response);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            generator.writeEndArray();
+            generator.flush();
+        }
+    }
+
+    private static class CsvWriter implements ChunkWriter {
+        private final Writer writer;
+
+        CsvWriter(Writer writer) throws IOException {
+            this.writer = writer;
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        @Override
+        public void write(ProductResponse response) throws IOException {
+            writer.write(String.join(",",
+                    String.valueOf(response.getId()),
+                    escape(response.getName()),
+                    String.valueOf(response.getPrice()),
+                    String.valueOf(response.getStock()),
+                    String.valueOf(response.getInStock()),
+                    String.valueOf(response.getStatus()),
+                    escape(response.getCategory()),
+                    escape(response.getImages() != null ? String.join("|", response.getImages()) : null),
+                    String.valueOf(response.getCreatedAt())));
+            writer.write('\n');
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+                return "\"" + value.replace("\"", "\"\"") + "\"";
+            }
+            return value;
+        }
+    }
+}
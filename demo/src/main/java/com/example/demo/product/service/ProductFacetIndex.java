@@ -0,0 +1,296 @@
+package com.example.demo.product.service;
+
+import com.example.demo.product.dto.ProductFilterRequest;
+import com.example.demo.product.entity.ProductStatus;
+import com.example.demo.product.event.ProductChangedEvent;
+import com.example.demo.product.event.ProductStockChangedEvent;
+import com.example.demo.product.event.ProductsImportedEvent;
+import com.example.demo.product.repository.ProductFacetView;
+import com.example.demo.product.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Facet index trong bộ nhớ: bitset id sản phẩm ACTIVE theo category, brand, khoảng giá
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductFacetIndex {
+
+    private final ProductRepository productRepository;
+
+    @Value("${product.facets.price-buckets:100000,200000,500000,1000000,2000000,5000000}")
+    private BigDecimal[] priceBoundaries;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private Snapshot snapshot; // null cho tới lần rebuild đầu tiên
+    private boolean rebuilding;
+
+    // candidateIds: sản phẩm khớp các filter chỉ DB trả lời được (keyword, thuộc tính variant), null = không lọc
+    public FacetCounts count(ProductFilterRequest filter, List<Long> candidateIds) {
+        lock.readLock().lock();
+        try {
+            Snapshot snap = snapshot;
+            if (snap == null) {
+                return new FacetCounts(Map.of(), Map.of(), new long[priceBoundaries.length + 1], priceBoundaries.clone());
+            }
+            BitSet base = (BitSet) snap.active.clone();
+            if (candidateIds != null) {
+                BitSet matched = new BitSet();
+                candidateIds.forEach(id -> matched.set(Math.toIntExact(id)));
+                base.and(matched);
+            }
+            if (filter.isInStockOnly()) {
+                base.and(snap.inStock);
+            }
+
+            BitSet categoryBits = filter.getCategoryId() == null ? null
+                    : snap.byCategory.getOrDefault(filter.getCategoryId(), new BitSet());
+            BitSet brandBits = filter.getBrandId() == null ? null
+                    : snap.byBrand.getOrDefault(filter.getBrandId(), new BitSet());
+            BitSet priceBits = filter.getMinPrice() == null && filter.getMaxPrice() == null ? null
+                    : priceFilter(snap, filter.getMinPrice(), filter.getMaxPrice());
+
+            // Một lượt duyệt: mỗi facet được đếm với mọi filter trừ filter của chính nó
+            Map<Long, Long> categoryCounts = new HashMap<>();
+            Map<Long, Long> brandCounts = new HashMap<>();
+            long[] priceCounts = new long[priceBoundaries.length + 1];
+            for (int id = base.nextSetBit(0); id >= 0; id = base.nextSetBit(id + 1)) {
+                boolean inCategory = categoryBits == null || categoryBits.get(id);
+                boolean inBrand = brandBits == null || brandBits.get(id);
+                boolean inPrice = priceBits == null || priceBits.get(id);
+                if (inBrand && inPrice) {
+                    categoryCounts.merge(snap.categoryOf[id], 1L, Long::sum);
+                }
+                if (inCategory && inPrice && snap.brandOf[id] != 0) {
+                    brandCounts.merge(snap.brandOf[id], 1L, Long::sum);
+                }
+                if (inCategory && inBrand) {
+                    priceCounts[snap.bucketOf[id]]++;
+                }
+            }
+            return new FacetCounts(categoryCounts, brandCounts, priceCounts, priceBoundaries.clone());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        ProductFacetView view = productRepository
+                .findFacetViewByIdAndStatus(event.productId(), ProductStatus.ACTIVE)
+                .orElse(null);
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(event.productId());
+            }
+            if (snapshot == null) {
+                return;
+            }
+            snapshot.remove(Math.toIntExact(event.productId()));
+            if (view != null) {
+                snapshot.add(view, bucketOf(view.getPrice()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Đổi tồn kho chỉ lật bit in_stock, không đọc lại sản phẩm từ DB
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductStockChanged(ProductStockChangedEvent event) {
+        int id = Math.toIntExact(event.productId());
+        lock.writeLock().lock();
+        try {
+            if (rebuilding) {
+                changedDuringRebuild.add(event.productId());
+            }
+            if (snapshot == null || !snapshot.active.get(id)) {
+                return;
+            }
+            snapshot.inStock.set(id, event.inStock());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @EventListener({ApplicationReadyEvent.class, ProductsImportedEvent.class})
+    @Scheduled(fixedDelayString = "${product.facets.rebuild-interval:PT30M}",
+               initialDelayString = "${product.facets.rebuild-interval:PT30M}")
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        Snapshot fresh;
+        try {
+            List<ProductFacetView> views = productRepository.findFacetViewsByStatus(ProductStatus.ACTIVE);
+            long maxId = views.stream().mapToLong(ProductFacetView::getId).max().orElse(0);
+            fresh = new Snapshot(Math.toIntExact(maxId) + 1, priceBoundaries.length + 1);
+            for (ProductFacetView view : views) {
+                fresh.add(view, bucketOf(view.getPrice()));
+            }
+        } catch (Exception e) {
+            log.error("Không dựng được facet index", e);
+            lock.writeLock().lock();
+            try {
+                rebuilding = false;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return;
+        }
+
+        // Áp lại các thay đổi xảy ra trong lúc đang đọc DB để không bị mất
+        List<Long> changed;
+        lock.writeLock().lock();
+        try {
+            snapshot = fresh;
+            rebuilding = false;
+            changed = new ArrayList<>(changedDuringRebuild);
+            changedDuringRebuild.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        for (Long productId : changed) {
+            onProductChanged(new ProductChangedEvent(productId));
+        }
+        log.info("Đã dựng facet index: {} sản phẩm", fresh.active.cardinality());
+    }
+
+    // Bucket nằm trọn trong khoảng thì OR cả bitset, bucket ở biên thì so giá từng sản phẩm
+    private BitSet priceFilter(Snapshot snap, BigDecimal minPrice, BigDecimal maxPrice) {
+        BitSet result = new BitSet();
+        for (int bucket = 0; bucket < snap.byPriceBucket.length; bucket++) {
+            BigDecimal lower = bucket == 0 ? null : priceBoundaries[bucket - 1];
+            BigDecimal upper = bucket == priceBoundaries.length ? null : priceBoundaries[bucket];
+            boolean disjoint = (maxPrice != null && lower != null && lower.compareTo(maxPrice) > 0)
+                    || (minPrice != null && upper != null && upper.compareTo(minPrice) <= 0);
+            if (disjoint) {
+                continue;
+            }
+            boolean contained = (minPrice == null || (lower != null && lower.compareTo(minPrice) >= 0))
+                    && (maxPrice == null || (upper != null && upper.compareTo(maxPrice) <= 0));
+            BitSet bucketBits = snap.byPriceBucket[bucket];
+            if (contained) {
+                result.or(bucketBits);
+                continue;
+            }
+            for (int id = bucketBits.nextSetBit(0); id >= 0; id = bucketBits.nextSetBit(id + 1)) {
+                BigDecimal price = snap.priceOf[id];
+                if ((minPrice == null || price.compareTo(minPrice) >= 0)
+                        && (maxPrice == null || price.compareTo(maxPrice) <= 0)) {
+                    result.set(id);
+                }
+            }
+        }
+        return result;
+    }
+
+    // Bucket i chứa giá trong [boundaries[i-1], boundaries[i])
+    private int bucketOf(BigDecimal price) {
+        int bucket = 0;
+        while (bucket < priceBoundaries.length && price.compareTo(priceBoundaries[bucket]) >= 0) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    public record FacetCounts(Map<Long, Long> categories, Map<Long, Long> brands,
+                              long[] priceBuckets, BigDecimal[] priceBoundaries) {
+    }
+
+    private static class Snapshot {
+        private final BitSet active = new BitSet();
+        private final BitSet inStock = new BitSet();
+        private final Map<Long, BitSet> byCategory = new HashMap<>();
+        private final Map<Long, BitSet> byBrand = new HashMap<>();
+        private final BitSet[] byPriceBucket;
+        // Thuộc tính theo product id (mảng dày) để đếm trong một lượt duyệt
+        private long[] categoryOf;
+        private long[] brandOf;
+        private int[] bucketOf;
+        private BigDecimal[] priceOf;
+
+        private Snapshot(int capacity, int bucketCount) {
+            byPriceBucket = new BitSet[bucketCount];
+            for (int i = 0; i < byPriceBucket.length; i++) {
+                byPriceBucket[i] = new BitSet();
+            }
+            categoryOf = new long[capacity];
+            brandOf = new long[capacity];
+            bucketOf = new int[capacity];
+            priceOf = new BigDecimal[capacity];
+        }
+
+        private void add(ProductFacetView view, int bucket) {
+            int id = Math.toIntExact(view.getId());
+            ensureCapacity(id + 1);
+            active.set(id);
+            if (Boolean.TRUE.equals(view.getInStock())) {
+                inStock.set(id);
+            }
+            categoryOf[id] = view.getCategoryId();
+            byCategory.computeIfAbsent(view.getCategoryId(), k -> new BitSet()).set(id);
+            if (view.getBrandId() != null) {
+                brandOf[id] = view.getBrandId();
+                byBrand.computeIfAbsent(view.getBrandId(), k -> new BitSet()).set(id);
+            }
+            bucketOf[id] = bucket;
+            priceOf[id] = view.getPrice();
+            byPriceBucket[bucket].set(id);
+        }
+
+        private void remove(int id) {
+            if (id >= categoryOf.length || !active.get(id)) {
+                return;
+            }
+            active.clear(id);
+            inStock.clear(id);
+            BitSet categoryBits = byCategory.get(categoryOf[id]);
+            if (categoryBits != null) {
+                categoryBits.clear(id);
+            }
+            if (brandOf[id] != 0) {
+                byBrand.get(brandOf[id]).clear(id);
+            }
+            byPriceBucket[bucketOf[id]].clear(id);
+            categoryOf[id] = 0;
+            brandOf[id] = 0;
+            priceOf[id] = null;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity <= categoryOf.length) {
+                return;
+            }
+            int newCapacity = Math.max(capacity, categoryOf.length * 3 / 2 + 16);
+            categoryOf = Arrays.copyOf(categoryOf, newCapacity);
+            brandOf = Arrays.copyOf(brandOf, newCapacity);
+            bucketOf = Arrays.copyOf(bucketOf, newCapacity);
+            priceOf = Arrays.copyOf(priceOf, newCapacity);
+        }
+    }
+}
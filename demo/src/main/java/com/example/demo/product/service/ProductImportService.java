@@ -0,0 +1,592 @@
+package com.example.demo.product.service;
+
+import com.example.demo.catalog.entity.Brand;
+import com.example.demo.catalog.repository.BrandRepository;
+import com.example.demo.catalog.service.CategoryTreeCache;
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.product.dto.ProductImportError;
+import com.example.demo.product.dto.ProductImportJobResponse;
+import com.example.demo.product.dto.ProductImportRow;
+import com.example.demo.product.event.ProductsImportedEvent;
+import com.example.demo.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+// Import sản phẩm hàng loạt từ CSV / JSON lines, chạy nền:
+// đọc file theo từng chunk → parse + validate song song → cấp trước id từ sequence → batch INSERT bằng JDBC, mỗi chunk một transaction.
+// Lỗi từng dòng được ghi lại, không làm dừng cả job
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductImportService {
+
+    public static final int MAX_REPORTED_ERRORS = 1000;
+    private static final int CHUNK_SIZE = 1000;
+    private static final int ID_BLOCK_SIZE = 50; // = allocationSize của @SequenceGenerator
+    private static final Duration JOB_RETENTION = Duration.ofHours(24);
+    private static final List<String> CSV_COLUMNS = List.of("sku", "name", "description", "listPrice", "price",
+            "categorySlug", "brand", "variantSku", "variantPrice", "variantStock", "attributes", "images");
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ProductRepository productRepository;
+    private final BrandRepository brandRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final ObjectMapper objectMapper;
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<String, ImportJob> jobs = new ConcurrentHashMap<>();
+    // Một job tại một thời điểm: các job chạy song song chỉ tranh nhau connection và sequence
+    private final ExecutorService jobExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "product-import");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ProductImportJobResponse startImport(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new RuntimeException("File import trống");
+        }
+        FileFormat format = FileFormat.of(file.getOriginalFilename());
+
+        Path tempFile;
+        try {
+            // Lưu ra file tạm vì multipart bị xóa khi request kết thúc
+            tempFile = Files.createTempFile("product-import-", format.extension);
+            file.transferTo(tempFile);
+        } catch (IOException e) {
+            throw new RuntimeException("Không lưu được file import: " + e.getMessage());
+        }
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), file.getOriginalFilename());
+        jobs.put(job.id, job);
+        jobExecutor.submit(() -> run(job, tempFile, format));
+        return job.toResponse();
+    }
+
+    public ProductImportJobResponse getJob(String jobId) {
+        ImportJob job = jobs.get(jobId);
+        if (job == null) {
+            throw new ResourceNotFoundException("Import job", "id", jobId);
+        }
+        return job.toResponse();
+    }
+
+    @Scheduled(fixedDelayString = "PT1H")
+    public void removeFinishedJobs() {
+        LocalDateTime threshold = LocalDateTime.now().minus(JOB_RETENTION);
+        jobs.values().removeIf(job -> job.finishedAt != null && job.finishedAt.isBefore(threshold));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    private void run(ImportJob job, Path file, FileFormat format) {
+        job.start();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            ImportContext context = new ImportContext(loadBrandIds());
+            long lineNumber = 0;
+            if (format == FileFormat.CSV) {
+                String header = reader.readLine();
+                lineNumber++;
+                validateHeader(header);
+            }
+
+            List<RawLine> chunk = new ArrayList<>(CHUNK_SIZE);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                chunk.add(new RawLine(lineNumber, line));
+                if (chunk.size() == CHUNK_SIZE) {
+                    processChunk(job, context, chunk, format);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                processChunk(job, context, chunk, format);
+            }
+            job.complete();
+            log.info("Import {} xong: {} dòng, {} sản phẩm, {} variant, {} lỗi", job.fileName,
+                    job.processedRows.get(), job.importedProducts.get(), job.importedVariants.get(), job.failedRows.get());
+        } catch (Exception e) {
+            log.error("Import {} thất bại", job.fileName, e);
+            job.fail(e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Không xóa được file tạm {}", file);
+            }
+        }
+
+        if (job.importedVariants.get() > 0) {
+            // Các index trong bộ nhớ dựng lại một lần thay vì nhận từng ProductChangedEvent
+            eventPublisher.publishEvent(new ProductsImportedEvent(job.importedProducts.get(), job.importedVariants.get()));
+        }
+    }
+
+    private void processChunk(ImportJob job, ImportContext context, List<RawLine> chunk, FileFormat format) {
+        // Parse + validate không phụ thuộc nhau giữa các dòng → chạy song song
+        List<ParsedRow> parsed = chunk.parallelStream()
+                .map(line -> parseAndValidate(line, format, context.brandIds))
+                .toList();
+
+        List<ParsedRow> valid = new ArrayList<>();
+        for (ParsedRow row : parsed) {
+            if (row.error() != null) {
+                job.addError(row.lineNumber(), row.error());
+            } else {
+                valid.add(row);
+            }
+        }
+
+        // Trùng SKU: trong cùng file và với dữ liệu đã có trong DB
+        Set<String> variantSkus = valid.stream().map(row -> row.data().getVariantSku()).collect(Collectors.toSet());
+        Set<String> existingVariantSkus = variantSkus.isEmpty() ? Set.of() : new HashSet<>(namedJdbcTemplate.queryForList(
+                "SELECT sku FROM product_variants WHERE sku IN (:skus)", Map.of("skus", variantSkus), String.class));
+        Set<String> productSkus = valid.stream()
+                .map(row -> row.data().getSku())
+                .filter(sku -> !context.productIdBySku.containsKey(sku))
+                .collect(Collectors.toSet());
+        Map<String, Long> existingProducts = new HashMap<>();
+        if (!productSkus.isEmpty()) {
+            namedJdbcTemplate.query("SELECT id, sku FROM products WHERE sku IN (:skus)", Map.of("skus", productSkus),
+                    rs -> {
+                        existingProducts.put(rs.getString("sku"), rs.getLong("id"));
+                    });
+        }
+
+        Set<String> chunkVariantSkus = new HashSet<>();
+        Map<String, ParsedRow> newProducts = new LinkedHashMap<>(); // sku → dòng đầu tiên định nghĩa sản phẩm
+        List<ParsedRow> accepted = new ArrayList<>();
+        for (ParsedRow row : valid) {
+            String variantSku = row.data().getVariantSku();
+            if (existingVariantSkus.contains(variantSku) || context.variantSkus.contains(variantSku)
+                    || !chunkVariantSkus.add(variantSku)) {
+                job.addError(row.lineNumber(), "Variant SKU " + variantSku + " đã tồn tại");
+                continue;
+            }
+            String sku = row.data().getSku();
+            if (!context.productIdBySku.containsKey(sku) && !existingProducts.containsKey(sku)) {
+                newProducts.putIfAbsent(sku, row);
+            }
+            accepted.add(row);
+        }
+
+        if (!accepted.isEmpty()) {
+            try {
+                Map<String, Long> createdProducts = writeChunk(context, existingProducts, newProducts, accepted);
+                context.productIdBySku.putAll(createdProducts);
+                context.variantSkus.addAll(chunkVariantSkus);
+                job.importedProducts.addAndGet(createdProducts.size());
+                job.importedVariants.addAndGet(accepted.size());
+            } catch (Exception e) {
+                log.warn("Không ghi được chunk dòng {}-{}: {}", chunk.get(0).number(),
+                        chunk.get(chunk.size() - 1).number(), e.getMessage());
+                for (ParsedRow row : accepted) {
+                    job.addError(row.lineNumber(), "Lỗi ghi dữ liệu: " + e.getMessage());
+                }
+            }
+        }
+        job.processedRows.addAndGet(chunk.size());
+    }
+
+    // Ghi một chunk trong một transaction, trả về sku → id của các sản phẩm mới tạo
+    private Map<String, Long> writeChunk(ImportContext context, Map<String, Long> existingProducts,
+                                         Map<String, ParsedRow> newProducts, List<ParsedRow> rows) {
+        JdbcTemplate jdbcTemplate = namedJdbcTemplate.getJdbcTemplate();
+        int imageCount = newProducts.values().stream()
+                .mapToInt(row -> row.data().getImages() != null ? row.data().getImages().size() : 0)
+                .sum();
+
+        // Cấp trước id: một query cho mỗi bảng thay vì một round-trip RETURNING id mỗi dòng
+        List<Long> productIds = allocateIds("products", newProducts.size());
+        List<Long> variantIds = allocateIds("product_variants", rows.size());
+        List<Long> imageIds = allocateIds("product_images", imageCount);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        Map<String, Long> createdProducts = new HashMap<>();
+        List<Object[]> productArgs = new ArrayList<>(newProducts.size());
+        List<Object[]> imageArgs = new ArrayList<>(imageCount);
+        int productIndex = 0;
+        int imageIndex = 0;
+        for (ParsedRow row : newProducts.values()) {
+            Long productId = productIds.get(productIndex++);
+            ProductImportRow data = row.data();
+            createdProducts.put(data.getSku(), productId);
+            productArgs.add(new Object[]{productId, data.getSku(), data.getName(), slugOf(data.getName(), productId),
+                    data.getDescription(), data.getListPrice(), data.getPrice(), row.brandId(), row.categoryId(),
+                    "ACTIVE", now, now});
+            List<String> images = data.getImages() != null ? data.getImages() : List.of();
+            for (int order = 0; order < images.size(); order++) {
+                imageArgs.add(new Object[]{imageIds.get(imageIndex++), productId, images.get(order), order == 0, order, now});
+            }
+        }
+
+        List<Object[]> variantArgs = new ArrayList<>(rows.size());
+        Set<Long> touchedProducts = new LinkedHashSet<>();
+        int variantIndex = 0;
+        for (ParsedRow row : rows) {
+            ProductImportRow data = row.data();
+            Long productId = createdProducts.get(data.getSku());
+            if (productId == null) {
+                productId = context.productIdBySku.getOrDefault(data.getSku(), existingProducts.get(data.getSku()));
+            }
+            Long variantId = variantIds.get(variantIndex++);
+            touchedProducts.add(productId);
+            variantArgs.add(new Object[]{variantId, productId, data.getVariantSku(), data.getVariantStock(),
+                    data.getVariantPrice(), attributesJson(data.getAttributes()), now, now});
+        }
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("INSERT INTO products (id, sku, name, slug, description, list_price, price, " +
+                    "brand_id, category_id, status, total_stock, in_stock, created_at, updated_at) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, false, ?, ?)", productArgs);
+            jdbcTemplate.batchUpdate("INSERT INTO product_variants (id, product_id, sku, stock, price, attributes, " +
+                    "version, created_at, updated_at) VALUES (?, ?, ?, ?, ?, CAST(? AS jsonb), 0, ?, ?)", variantArgs);
+            jdbcTemplate.batchUpdate("INSERT INTO product_images (id, product_id, url, is_primary, display_order, " +
+                    "created_at) VALUES (?, ?, ?, ?, ?, ?)", imageArgs);
+            // Tổng stock / khoảng giá tính lại cho mọi sản phẩm có variant mới
+            productRepository.refreshStockSummary(touchedProducts);
+        });
+        return createdProducts;
+    }
+
+    private String attributesJson(Map<String, String> attributes) {
+        try {
+            return objectMapper.writeValueAsString(attributes != null ? attributes : Map.of());
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Cùng quy ước với Hibernate (pooled-lo, increment 50): mỗi nextval cấp khối [value, value + 49]
+    private List<Long> allocateIds(String table, int count) {
+        if (count == 0) {
+            return List.of();
+        }
+        int blocks = (count + ID_BLOCK_SIZE - 1) / ID_BLOCK_SIZE;
+        List<Long> blockStarts = namedJdbcTemplate.getJdbcTemplate().queryForList(
+                "SELECT nextval(?) FROM generate_series(1, ?)", Long.class, table + "_seq", blocks);
+        List<Long> ids = new ArrayList<>(count);
+        for (Long start : blockStarts) {
+            for (int offset = 0; offset < ID_BLOCK_SIZE && ids.size() < count; offset++) {
+                ids.add(start + offset);
+            }
+        }
+        return ids;
+    }
+
+    private ParsedRow parseAndValidate(RawLine line, FileFormat format, Map<String, Long> brandIds) {
+        ProductImportRow data;
+        try {
+            data = format == FileFormat.CSV ? parseCsv(line.text()) : objectMapper.readValue(line.text(), ProductImportRow.class);
+        } catch (Exception e) {
+            return ParsedRow.failed(line.number(), "Không đọc được dòng: " + e.getMessage());
+        }
+
+        if (isBlank(data.getSku())) {
+            return ParsedRow.failed(line.number(), "Thiếu sku");
+        }
+        if (isBlank(data.getName())) {
+            return ParsedRow.failed(line.number(), "Thiếu name");
+        }
+        if (isBlank(data.getVariantSku())) {
+            return ParsedRow.failed(line.number(), "Thiếu variantSku");
+        }
+        if (data.getPrice() == null || data.getPrice().signum() <= 0) {
+            return ParsedRow.failed(line.number(), "price phải lớn hơn 0");
+        }
+        if (data.getListPrice() == null) {
+            data.setListPrice(data.getPrice());
+        }
+        if (data.getVariantPrice() == null) {
+            data.setVariantPrice(data.getPrice());
+        }
+        if (data.getVariantStock() == null) {
+            data.setVariantStock(0);
+        }
+        if (data.getVariantStock() < 0) {
+            return ParsedRow.failed(line.number(), "variantStock không được âm");
+        }
+
+        Long categoryId = categoryTreeCache.findBySlug(data.getCategorySlug())
+                .map(CategoryTreeCache.CategoryNode::id)
+                .orElse(null);
+        if (categoryId == null) {
+            return ParsedRow.failed(line.number(), "Category với slug " + data.getCategorySlug() + " không tồn tại");
+        }
+        Long brandId = null;
+        if (!isBlank(data.getBrand())) {
+            brandId = brandIds.get(data.getBrand().trim().toLowerCase(Locale.ROOT));
+            if (brandId == null) {
+                return ParsedRow.failed(line.number(), "Brand " + data.getBrand() + " không tồn tại");
+            }
+        }
+        return new ParsedRow(line.number(), data, categoryId, brandId, null);
+    }
+
+    // attributes dạng "size=M;color=Đỏ", images dạng "url1|url2"
+    private ProductImportRow parseCsv(String line) {
+        List<String> fields = splitCsvLine(line);
+        if (fields.size() != CSV_COLUMNS.size()) {
+            throw new IllegalArgumentException("cần " + CSV_COLUMNS.size() + " cột, có " + fields.size());
+        }
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (String pair : fields.get(10).split(";")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                attributes.put(pair.substring(0, separator).trim(), pair.substring(separator + 1).trim());
+            }
+        }
+        List<String> images = Arrays.stream(fields.get(11).split("\\|"))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        return ProductImportRow.builder()
+                .sku(emptyToNull(fields.get(0)))
+                .name(emptyToNull(fields.get(1)))
+                .description(emptyToNull(fields.get(2)))
+                .listPrice(decimalOrNull(fields.get(3)))
+                .price(decimalOrNull(fields.get(4)))
+                .categorySlug(emptyToNull(fields.get(5)))
+                .brand(emptyToNull(fields.get(6)))
+                .variantSku(emptyToNull(fields.get(7)))
+                .variantPrice(decimalOrNull(fields.get(8)))
+                .variantStock(isBlank(fields.get(9)) ? null : Integer.valueOf(fields.get(9).trim()))
+                .attributes(attributes)
+                .images(images)
+                .build();
+    }
+
+    // Hỗ trợ field trong ngoặc kép ("a, b" và "" để escape), mỗi bản ghi nằm trên một dòng
+    private List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        fields.add(current.toString());
+        return fields;
+    }
+
+    private void validateHeader(String header) {
+        if (header == null) {
+            throw new RuntimeException("File CSV trống");
+        }
+        List<String> columns = splitCsvLine(header.replace("\uFEFF", "")).stream().map(String::trim).toList();
+        if (!columns.equals(CSV_COLUMNS)) {
+            throw new RuntimeException("Header CSV phải là: " + String.join(",", CSV_COLUMNS));
+        }
+    }
+
+    private Map<String, Long> loadBrandIds() {
+        return brandRepository.findAll().stream()
+                .collect(Collectors.toMap(brand -> brand.getName().trim().toLowerCase(Locale.ROOT), Brand::getId,
+                        (first, second) -> first));
+    }
+
+    // Giống Product.generateSlug, thêm id để không trùng slug giữa các sản phẩm cùng tên
+    private String slugOf(String name, Long id) {
+        String base = name.toLowerCase()
+                .replaceAll("[^a-z0-9\\s-]", "")
+                .replaceAll("\\s+", "-")
+                .replaceAll("-+", "-")
+                .trim();
+        return base.isEmpty() ? String.valueOf(id) : base + "-" + id;
+    }
+
+    private static BigDecimal decimalOrNull(String value) {
+        return isBlank(value) ? null : new BigDecimal(value.trim());
+    }
+
+    private static String emptyToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private enum FileFormat {
+        CSV(".csv"),
+        JSON_LINES(".jsonl");
+
+        private final String extension;
+
+        FileFormat(String extension) {
+            this.extension = extension;
+        }
+
+        static FileFormat of(String fileName) {
+            String name = fileName == null ? "" : fileName.toLowerCase(Locale.ROOT);
+            if (name.endsWith(".csv")) {
+                return CSV;
+            }
+            if (name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+                return JSON_LINES;
+            }
+            throw new RuntimeException("Chỉ hỗ trợ file .csv, .jsonl hoặc .ndjson");
+        }
+    }
+
+    private record RawLine(long number, String text) {
+    }
+
+    private record ParsedRow(long lineNumber, ProductImportRow data, Long categoryId, Long brandId, String error) {
+        static ParsedRow failed(long lineNumber, String message) {
+            return new ParsedRow(lineNumber, null, null, null, message);
+        }
+    }
+
+    // Trạng thái dùng chung giữa các chunk của một job
+    private static class ImportContext {
+        private final Map<String, Long> brandIds;
+        private final Map<String, Long> productIdBySku = new HashMap<>();
+        private final Set<String> variantSkus = new HashSet<>();
+
+        private ImportContext(Map<String, Long> brandIds) {
+            this.brandIds = brandIds;
+        }
+    }
+
+    private static class ImportJob {
+        private final String id;
+        private final String fileName;
+        private final AtomicLong processedRows = new AtomicLong();
+        private final AtomicLong importedProducts = new AtomicLong();
+        private final AtomicLong importedVariants = new AtomicLong();
+        private final AtomicLong failedRows = new AtomicLong();
+        private final List<ProductImportError> errors = new ArrayList<>();
+        private volatile ProductImportJobResponse.Status status = ProductImportJobResponse.Status.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile long startedNanos;
+        private volatile long finishedNanos;
+
+        private ImportJob(String id, String fileName) {
+            this.id = id;
+            this.fileName = fileName;
+        }
+
+        private void start() {
+            startedAt = LocalDateTime.now();
+            startedNanos = System.nanoTime();
+            status = ProductImportJobResponse.Status.RUNNING;
+        }
+
+        private void complete() {
+            finish(ProductImportJobResponse.Status.COMPLETED);
+        }
+
+        private void fail(String message) {
+            addError(0, message);
+            finish(ProductImportJobResponse.Status.FAILED);
+        }
+
+        private void finish(ProductImportJobResponse.Status finalStatus) {
+            finishedNanos = System.nanoTime();
+            finishedAt = LocalDateTime.now();
+            status = finalStatus;
+        }
+
+        private void addError(long row, String message) {
+            if (row > 0) {
+                failedRows.incrementAndGet();
+            }
+            synchronized (errors) {
+                if (errors.size() < MAX_REPORTED_ERRORS) {
+                    errors.add(new ProductImportError(row, message));
+                }
+            }
+        }
+
+        private ProductImportJobResponse toResponse() {
+            double rowsPerSecond = 0;
+            if (startedNanos > 0) {
+                long end = finishedNanos > 0 ? finishedNanos : System.nanoTime();
+                double seconds = (end - startedNanos) / 1_000_000_000.0;
+                rowsPerSecond = seconds > 0 ? processedRows.get() / seconds : 0;
+            }
+            List<ProductImportError> errorSnapshot;
+            synchronized (errors) {
+                errorSnapshot = new ArrayList<>(errors);
+            }
+            return ProductImportJobResponse.builder()
+                    .jobId(id)
+                    .fileName(fileName)
+                    .status(status)
+                    .processedRows(processedRows.get())
+                    .importedProducts(importedProducts.get())
+                    .importedVariants(importedVariants.get())
+                    .failedRows(failedRows.get())
+                    .rowsPerSecond(Math.round(rowsPerSecond * 10) / 10.0)
+                    .errors(errorSnapshot)
+                    .startedAt(startedAt)
+                    .finishedAt(finishedAt)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.product.service;
+
+import com.example.demo.catalog.entity.Category;
+import com.example.demo.catalog.repository.CategoryRepository;
+import com.example.demo.product.dto.ProductResponse;
+import com.example.demo.product.dto.ProductVariantResponse;
+import com.example.demo.product.entity.Product;
+import com.example.demo.product.entity.ProductImage;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductImageRepository;
+import com.example.demo.product.repository.ProductVariantRepository;
+import com.example.demo.review.dto.ProductRatingSummaryResponse;
+import com.example.demo.review.service.ProductRatingService;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.proxy.HibernateProxy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Dựng ProductResponse cho cả trang bằng một số IN-query cố định thay vì 2 query mỗi sản phẩm.
+// Danh sách dùng số liệu tồn kho tổng hợp trên products, chỉ trang chi tiết mới load variants
+@Component
+@RequiredArgsConstructor
+public class ProductResponseAssembler {
+
+    private final ProductImageRepository productImageRepository;
+    private final ProductVariantRepository variantRepository;
+    private final CategoryRepository categoryRepository;
+    private final ProductRatingService productRatingService;
+
+    public ProductResponse toResponse(Product product) {
+        return build(List.of(product), true).get(0);
+    }
+
+    public Page<ProductResponse> toPage(Page<Product> products) {
+        return new PageImpl<>(toResponses(products.getContent()), products.getPageable(), products.getTotalElements());
+    }
+
+    public List<ProductResponse> toResponses(List<Product> products) {
+        return build(products, false);
+    }
+
+    private List<ProductResponse> build(List<Product> products, boolean withVariants) {
+        if (products.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> productIds = products.stream()
+                .map(Product::getId)
+                .collect(Collectors.toSet());
+        Set<Long> categoryIds = products.stream()
+                .map(this::categoryIdOf)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, List<String>> imagesByProduct = productImageRepository
+                .findByProductIdInOrderByDisplayOrderAscIdAsc(productIds).stream()
+                .collect(Collectors.groupingBy(img -> img.getProduct().getId(),
+                        Collectors.mapping(ProductImage::getUrl, Collectors.toList())));
+
+        Map<Long, List<ProductVariantResponse>> variantsByProduct = !withVariants
+                ? new HashMap<>()
+                : variantRepository.findByProductIdIn(productIds).stream()
+                        .collect(Collectors.groupingBy(v -> v.getProduct().getId(),
+                                Collectors.mapping(this::mapToVariantResponse, Collectors.toList())));
+
+        Map<Long, Category> categories = categoryIds.isEmpty()
+                ? new HashMap<>()
+                : categoryRepository.findAllById(categoryIds).stream()
+                        .collect(Collectors.toMap(Category::getId, Function.identity()));
+
+        Map<Long, ProductRatingSummaryResponse> ratings = productRatingService.getSummaries(productIds);
+
+        return products.stream()
+                .map(product -> buildResponse(product,
+                        imagesByProduct.getOrDefault(product.getId(), Collections.emptyList()),
+                        withVariants ? variantsByProduct.getOrDefault(product.getId(), Collections.emptyList()) : null,
+                        categories.get(categoryIdOf(product)),
+                        ratings.getOrDefault(product.getId(), ProductRatingSummaryResponse.empty()),
+                        withVariants))
+                .collect(Collectors.toList());
+    }
+
+    private ProductResponse buildResponse(Product product, List<String> images,
+                                          List<ProductVariantResponse> variants, Category category,
+                                          ProductRatingSummaryResponse rating, boolean withHistogram) {
+        return ProductResponse.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .description(product.getDescription())
+                .price(product.getPrice())
+                .stock(product.getTotalStock() != null ? product.getTotalStock() : 0)
+                .inStock(Boolean.TRUE.equals(product.getInStock()))
+                .minVariantPrice(product.getMinVariantPrice())
+                .maxVariantPrice(product.getMaxVariantPrice())
+                .sellerId(null) // TODO: Thêm seller nếu cần
+                .sellerName(null)
+                .sellerEmail(null)
+                .category(category != null ? category.getName() : null)
+                .averageRating(averageOf(rating))
+                .reviewCount(rating.getRatingCount())
+                .ratingHistogram(withHistogram ? rating.getHistogram() : null)
+                .images(images)
+                .variants(variants)
+                .status(product.getStatus())
+                .createdAt(product.getCreatedAt())
+                .updatedAt(product.getUpdatedAt())
+                .build();
+    }
+
+    private ProductVariantResponse mapToVariantResponse(ProductVariant variant) {
+        return ProductVariantResponse.builder()
+                .id(variant.getId())
+                .sku(variant.getSku())
+                .price(variant.getPrice())
+                .stock(variant.getStock())
+                .attributes(new HashMap<>(variant.getAttributes()))
+                .build();
+    }
+
+    private Double averageOf(ProductRatingSummaryResponse rating) {
+        if (rating.getRatingCount() == null || rating.getRatingCount() <= 0) {
+            return null;
+        }
+        return Math.round(rating.getRatingSum() * 10.0 / rating.getRatingCount()) / 10.0;
+    }
+
+    // Lấy category id mà không khởi tạo lazy proxy (tránh query từng dòng)
+    private Long categoryIdOf(Product product) {
+        Category category = product.getCategory();
+        if (category instanceof HibernateProxy proxy) {
+            return (Long) proxy.getHibernateLazyInitializer().getIdentifier();
+        }
+        return category != null ? category.getId() : null;
+    }
+}
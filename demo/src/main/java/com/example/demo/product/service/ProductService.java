@@ -1,32 +1,77 @@
 package com.example.demo.product.service;
 
+import com.example.demo.cache.CacheNames;
+import com.example.demo.cache.CacheService;
+import com.example.demo.catalog.entity.Brand;
 import com.example.demo.catalog.entity.Category;
+import com.example.demo.catalog.repository.BrandRepository;
 import com.example.demo.catalog.repository.CategoryRepository;
+import com.example.demo.catalog.service.CategoryTreeCache;
+import com.example.demo.common.id.IdGenerator;
+import com.example.demo.common.pagination.Cursor;
+import com.example.demo.common.pagination.CursorPage;
 import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.product.dto.FacetCount;
+import com.example.demo.product.dto.PriceRangeCount;
+import com.example.demo.product.dto.ProductFacetsResponse;
+import com.example.demo.product.dto.ProductFilterRequest;
 import com.example.demo.product.dto.ProductRequest;
 import com.example.demo.product.dto.ProductResponse;
+import com.example.demo.product.dto.ProductSearchResponse;
+import com.example.demo.product.dto.ProductSuggestionResponse;
 import com.example.demo.product.dto.ProductUpdateRequest;
 import com.example.demo.product.entity.Product;
 import com.example.demo.product.entity.ProductStatus;
-import com.example.demo.product.repository.ProductImageRepository;
+import com.example.demo.product.event.ProductChangedEvent;
 import com.example.demo.product.repository.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class ProductService {
 
     private final ProductRepository productRepository;
     private final CategoryRepository categoryRepository;
-    private final ProductImageRepository productImageRepository;
+    private final CategoryTreeCache categoryTreeCache;
+    private final BrandRepository brandRepository;
+    private final ProductResponseAssembler productResponseAssembler;
+    private final ProductSuggestionIndex productSuggestionIndex;
+    private final ProductFacetIndex productFacetIndex;
+    private final CacheService cacheService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final IdGenerator idGenerator;
+    private final ProductViewCounter productViewCounter;
+    private final ObjectMapper objectMapper;
+
+    @Value("${cache.product-detail.ttl:10m}")
+    private Duration productDetailTtl;
+
+    @Value("${cache.brand-name.ttl:1h}")
+    private Duration brandNameTtl;
 
     @Transactional
     public ProductResponse createProduct(ProductRequest request) {
@@ -35,7 +80,7 @@ public class ProductService {
                 .orElseThrow(() -> new ResourceNotFoundException("Category", 1L));
         
         // Generate SKU
-        String sku = "PROD-" + System.currentTimeMillis();
+        String sku = idGenerator.nextCode("PROD-");
         
         Product product = Product.builder()
                 .sku(sku)
@@ -48,7 +93,8 @@ public class ProductService {
                 .build();
 
         Product savedProduct = productRepository.save(product);
-        return mapToResponse(savedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId()));
+        return productResponseAssembler.toResponse(savedProduct);
     }
 
     @Transactional
@@ -83,7 +129,8 @@ public class ProductService {
         }
 
         Product updatedProduct = productRepository.save(product);
-        return mapToResponse(updatedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        return productResponseAssembler.toResponse(updatedProduct);
     }
 
     @Transactional
@@ -93,9 +140,15 @@ public class ProductService {
 
         product.setStatus(ProductStatus.DELETED);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId));
     }
 
     public ProductResponse getProductById(Long productId) {
+        return cacheService.get(CacheNames.PRODUCT_DETAIL, productId, ProductResponse.class, productDetailTtl,
+                () -> loadProductDetail(productId));
+    }
+
+    private ProductResponse loadProductDetail(Long productId) {
         Product product = productRepository.findById(productId)
                 .orElseThrow(() -> new ResourceNotFoundException("Product", productId));
         
@@ -103,43 +156,114 @@ public class ProductService {
             throw new RuntimeException("Sản phẩm đã bị xóa");
         }
         
-        return mapToResponse(product);
+        return productResponseAssembler.toResponse(product);
     }
 
     public Page<ProductResponse> getAllProducts(Pageable pageable) {
         Page<Product> products = productRepository.findByStatus(ProductStatus.ACTIVE, pageable);
-        return products.map(this::mapToResponse);
+        return productResponseAssembler.toPage(products);
+    }
+
+    public CursorPage<ProductResponse> getProductsByCursor(String cursor, int size) {
+        int limit = CursorPage.clampSize(size);
+        String status = ProductStatus.ACTIVE.name();
+        List<Product> products;
+        if (cursor == null || cursor.isBlank()) {
+            products = productRepository.findFirstByStatusKeyset(status, limit + 1);
+        } else {
+            Cursor after = Cursor.decode(cursor);
+            products = productRepository.findByStatusKeysetAfter(status, after.createdAt(), after.id(), limit + 1);
+        }
+        return CursorPage.of(products, limit, p -> new Cursor(p.getCreatedAt(), p.getId()),
+                productResponseAssembler::toResponses);
     }
 
     public Page<ProductResponse> searchProducts(String keyword, Pageable pageable) {
-        Page<Product> products = productRepository.searchProducts(keyword, ProductStatus.ACTIVE, pageable);
-        return products.map(this::mapToResponse);
+        if (keyword == null || keyword.isBlank()) {
+            return getAllProducts(pageable);
+        }
+        Page<Product> products = productRepository.searchProducts(keyword.trim(), ProductStatus.ACTIVE.name(), pageable);
+        return productResponseAssembler.toPage(products);
+    }
+
+    public ProductSearchResponse facetedSearch(ProductFilterRequest filter, Pageable pageable) {
+        String keyword = filter.getKeyword() == null || filter.getKeyword().isBlank() ? null : filter.getKeyword().trim();
+        String status = ProductStatus.ACTIVE.name();
+
+        String attributes = toAttributesJson(filter.getAttributes());
+
+        Page<Product> products = productRepository.searchWithFilters(filter.getCategoryId(), filter.getBrandId(),
+                filter.getMinPrice(), filter.getMaxPrice(), keyword, filter.isInStockOnly(), attributes, status, pageable);
+        List<Long> candidateIds = keyword == null ? null : productRepository.findIdsByKeyword(keyword, status);
+        if (attributes != null) {
+            List<Long> attributeMatches = productRepository.findIdsByAttributes(attributes, status);
+            if (candidateIds == null) {
+                candidateIds = attributeMatches;
+            } else {
+                Set<Long> matched = new HashSet<>(attributeMatches);
+                candidateIds = candidateIds.stream().filter(matched::contains).toList();
+            }
+        }
+        ProductFacetIndex.FacetCounts counts = productFacetIndex.count(filter, candidateIds);
+
+        return ProductSearchResponse.builder()
+                .products(productResponseAssembler.toPage(products))
+                .facets(mapToFacetsResponse(counts))
+                .build();
+    }
+
+    private String toAttributesJson(Map<String, String> attributes) {
+        if (attributes == null || attributes.isEmpty()) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(attributes);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Bộ lọc thuộc tính không hợp lệ");
+        }
+    }
+
+    public List<ProductSuggestionResponse> suggest(String query, int limit) {
+        return productSuggestionIndex.suggest(query, limit);
+    }
+
+    public List<ProductResponse> getMostViewed(int limit) {
+        int size = Math.max(1, Math.min(limit, 100));
+        List<Product> products = List.of();
+        try {
+            // Lấy dư để bù sản phẩm đã ẩn/xóa vẫn còn trong bảng xếp hạng
+            List<Long> ids = productViewCounter.topProductIds(size * 2);
+            Map<Long, Product> byId = productRepository.findAllById(ids).stream()
+                    .filter(product -> product.getStatus() == ProductStatus.ACTIVE)
+                    .collect(Collectors.toMap(Product::getId, Function.identity()));
+            products = ids.stream().map(byId::get).filter(Objects::nonNull).limit(size).toList();
+        } catch (Exception e) {
+            log.warn("Không đọc được bảng xếp hạng lượt xem từ Redis: {}", e.getMessage());
+        }
+        if (products.isEmpty()) {
+            products = productRepository.findByStatusOrderByViewCountDesc(ProductStatus.ACTIVE, PageRequest.of(0, size));
+        }
+        return productResponseAssembler.toResponses(products);
     }
 
     public Page<ProductResponse> getProductsByCategory(String categorySlug, Pageable pageable) {
-        Category category = categoryRepository.findBySlug(categorySlug)
+        CategoryTreeCache.CategoryNode category = categoryTreeCache.findBySlug(categorySlug)
                 .orElseThrow(() -> new ResourceNotFoundException("Category với slug " + categorySlug + " không tồn tại"));
-        Page<Product> products = productRepository.findByCategoryAndStatus(category, ProductStatus.ACTIVE, pageable);
-        return products.map(this::mapToResponse);
+        // Gồm cả sản phẩm thuộc danh mục con
+        Page<Product> products = productRepository.findByCategoryIdInAndStatus(
+                category.subtreeIds(), ProductStatus.ACTIVE, pageable);
+        return productResponseAssembler.toPage(products);
     }
 
     public Page<ProductResponse> getProductsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice, Pageable pageable) {
         Page<Product> products = productRepository.findByPriceRange(minPrice, maxPrice, ProductStatus.ACTIVE, pageable);
-        return products.map(this::mapToResponse);
+        return productResponseAssembler.toPage(products);
     }
 
     public Page<ProductResponse> getMyProducts(Pageable pageable) {
         // Tạm thời trả về tất cả products - sẽ cần thêm seller field hoặc cách khác
         Page<Product> products = productRepository.findByStatus(ProductStatus.ACTIVE, pageable);
-        return products.map(this::mapToResponse);
-    }
-
-    public List<ProductResponse> getMyProductsList() {
-        // Tạm thời trả về tất cả products
-        List<Product> products = productRepository.findAll();
-        return products.stream()
-                .map(this::mapToResponse)
-                .collect(Collectors.toList());
+        return productResponseAssembler.toPage(products);
     }
 
     @Transactional
@@ -149,32 +273,41 @@ public class ProductService {
 
         product.setStatus(status);
         Product updatedProduct = productRepository.save(product);
-        return mapToResponse(updatedProduct);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        return productResponseAssembler.toResponse(updatedProduct);
     }
 
-    private ProductResponse mapToResponse(Product product) {
-        // Lấy images từ ProductImage repository
-        List<String> images = productImageRepository.findByProduct(product).stream()
-                .map(img -> img.getUrl())
-                .collect(Collectors.toList());
-        
-        // Tính tổng stock từ variants (nếu có)
-        Integer totalStock = 0; // TODO: Tính từ ProductVariant
-        
-        return ProductResponse.builder()
-                .id(product.getId())
-                .name(product.getName())
-                .description(product.getDescription())
-                .price(product.getPrice())
-                .stock(totalStock)
-                .sellerId(null) // TODO: Thêm seller nếu cần
-                .sellerName(null)
-                .sellerEmail(null)
-                .category(product.getCategory() != null ? product.getCategory().getName() : null)
-                .images(images)
-                .status(product.getStatus())
-                .createdAt(product.getCreatedAt())
-                .updatedAt(product.getUpdatedAt())
+    private ProductFacetsResponse mapToFacetsResponse(ProductFacetIndex.FacetCounts counts) {
+        Map<Long, String> categoryNames = new HashMap<>();
+        for (Long categoryId : counts.categories().keySet()) {
+            categoryTreeCache.findById(categoryId)
+                    .ifPresent(node -> categoryNames.put(categoryId, node.name()));
+        }
+        Map<Long, String> brandNames = cacheService.getAll(CacheNames.BRAND_NAME, counts.brands().keySet(),
+                String.class, brandNameTtl, ids -> brandRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(Brand::getId, Brand::getName)));
+
+        List<PriceRangeCount> priceRanges = new ArrayList<>();
+        BigDecimal[] boundaries = counts.priceBoundaries();
+        for (int bucket = 0; bucket < counts.priceBuckets().length; bucket++) {
+            priceRanges.add(PriceRangeCount.builder()
+                    .minPrice(bucket == 0 ? null : boundaries[bucket - 1])
+                    .maxPrice(bucket == boundaries.length ? null : boundaries[bucket])
+                    .count(counts.priceBuckets()[bucket])
+                    .build());
+        }
+
+        return ProductFacetsResponse.builder()
+                .categories(toFacetCounts(counts.categories(), categoryNames::get))
+                .brands(toFacetCounts(counts.brands(), brandNames::get))
+                .priceRanges(priceRanges)
                 .build();
     }
+
+    private List<FacetCount> toFacetCounts(Map<Long, Long> counts, Function<Long, String> nameOf) {
+        return counts.entrySet().stream()
+                .map(e -> FacetCount.builder().id(e.getKey()).name(nameOf.apply(e.getKey())).count(e.getValue()).build())
+                .sorted(Comparator.comparingLong(FacetCount::getCount).reversed())
+                .collect(Collectors.toList());
+    }
 }
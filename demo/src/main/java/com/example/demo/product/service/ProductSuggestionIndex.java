@@ -0,0 +1,192 @@
+package com.example.demo.product.service;
+
+import com.example.demo.catalog.entity.Category;
+import com.example.demo.catalog.repository.CategoryRepository;
+import com.example.demo.product.dto.ProductSuggestionResponse;
+import com.example.demo.product.entity.Product;
+import com.example.demo.product.entity.ProductStatus;
+import com.example.demo.product.event.ProductChangedEvent;
+import com.example.demo.product.event.ProductsImportedEvent;
+import com.example.demo.product.repository.ProductNameView;
+import com.example.demo.product.repository.ProductRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Index autocomplete trong bộ nhớ: prefix lookup trên sorted map (tên sản phẩm, SKU, tên danh mục)
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ProductSuggestionIndex {
+
+    private static final int MAX_LIMIT = 50;
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private final ProductRepository productRepository;
+    private final CategoryRepository categoryRepository;
+
+    private final Object writeLock = new Object();
+    private final Set<Long> changedDuringRebuild = new HashSet<>();
+    private volatile Snapshot snapshot = new Snapshot();
+    private boolean rebuilding;
+
+    public List<ProductSuggestionResponse> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+
+        int max = Math.min(Math.max(limit, 1), MAX_LIMIT);
+        Set<String> seen = new HashSet<>();
+        List<ProductSuggestionResponse> results = new ArrayList<>(max);
+        for (Suggestion suggestion : snapshot.entries.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            if (seen.add(suggestion.type() + ":" + suggestion.id())) {
+                results.add(suggestion.toResponse());
+                if (results.size() >= max) {
+                    break;
+                }
+            }
+        }
+        return results;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        Product product = productRepository.findById(event.productId()).orElse(null);
+        synchronized (writeLock) {
+            if (rebuilding) {
+                changedDuringRebuild.add(event.productId());
+            }
+            applyProduct(snapshot, event.productId(), product);
+        }
+    }
+
+    @EventListener({ApplicationReadyEvent.class, ProductsImportedEvent.class})
+    @Scheduled(fixedDelayString = "${product.suggest.rebuild-interval:PT30M}",
+               initialDelayString = "${product.suggest.rebuild-interval:PT30M}")
+    public void rebuild() {
+        synchronized (writeLock) {
+            rebuilding = true;
+            changedDuringRebuild.clear();
+        }
+
+        Snapshot fresh = new Snapshot();
+        try {
+            for (ProductNameView view : productRepository.findNameViewsByStatus(ProductStatus.ACTIVE)) {
+                addProduct(fresh, view.getId(), view.getName(), view.getSku(), view.getSlug());
+            }
+            for (Category category : categoryRepository.findAll()) {
+                addEntry(fresh, "C:" + category.getId(), category.getName(),
+                        new Suggestion(category.getName(), ProductSuggestionResponse.Type.CATEGORY,
+                                category.getId(), category.getSlug()));
+            }
+        } catch (Exception e) {
+            log.error("Không dựng được index gợi ý sản phẩm", e);
+            synchronized (writeLock) {
+                rebuilding = false;
+            }
+            return;
+        }
+
+        // Áp lại các thay đổi xảy ra trong lúc đang đọc DB để không bị mất
+        List<Long> changed;
+        synchronized (writeLock) {
+            snapshot = fresh;
+            rebuilding = false;
+            changed = new ArrayList<>(changedDuringRebuild);
+            changedDuringRebuild.clear();
+        }
+        for (Long productId : changed) {
+            onProductChanged(new ProductChangedEvent(productId));
+        }
+        log.info("Đã dựng index gợi ý sản phẩm: {} khóa", fresh.entries.size());
+    }
+
+    private void applyProduct(Snapshot target, Long productId, Product product) {
+        removeOwner(target, "P:" + productId);
+        if (product != null && product.getStatus() == ProductStatus.ACTIVE) {
+            addProduct(target, product.getId(), product.getName(), product.getSku(), product.getSlug());
+        }
+    }
+
+    private void addProduct(Snapshot target, Long productId, String name, String sku, String slug) {
+        String owner = "P:" + productId;
+        addEntry(target, owner, name,
+                new Suggestion(name, ProductSuggestionResponse.Type.PRODUCT, productId, slug));
+        if (sku != null) {
+            addEntry(target, owner, sku,
+                    new Suggestion(sku, ProductSuggestionResponse.Type.SKU, productId, slug));
+        }
+    }
+
+    // Mỗi từ trong chuỗi là một điểm bắt đầu prefix, để "thun" cũng tìm ra "Áo thun nam"
+    private void addEntry(Snapshot target, String owner, String text, Suggestion suggestion) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return;
+        }
+        List<String> keys = target.keysByOwner.computeIfAbsent(owner, k -> new ArrayList<>());
+        int start = 0;
+        while (true) {
+            String key = normalized.substring(start) + KEY_SEPARATOR + suggestion.type().ordinal() + ":" + suggestion.id();
+            target.entries.put(key, suggestion);
+            keys.add(key);
+            int nextSpace = normalized.indexOf(' ', start);
+            if (nextSpace < 0) {
+                break;
+            }
+            start = nextSpace + 1;
+        }
+    }
+
+    private void removeOwner(Snapshot target, String owner) {
+        List<String> keys = target.keysByOwner.remove(owner);
+        if (keys != null) {
+            keys.forEach(target.entries::remove);
+        }
+    }
+
+    // Bỏ dấu tiếng Việt, chữ thường, gộp khoảng trắng
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        return Normalizer.normalize(text, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .replace('đ', 'd')
+                .replace('Đ', 'D')
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static class Snapshot {
+        private final ConcurrentSkipListMap<String, Suggestion> entries = new ConcurrentSkipListMap<>();
+        private final Map<String, List<String>> keysByOwner = new ConcurrentHashMap<>();
+    }
+
+    private record Suggestion(String text, ProductSuggestionResponse.Type type, Long id, String slug) {
+        ProductSuggestionResponse toResponse() {
+            return ProductSuggestionResponse.builder()
+                    .text(text)
+                    .type(type)
+                    .id(id)
+                    .slug(slug)
+                    .build();
+        }
+    }
+}
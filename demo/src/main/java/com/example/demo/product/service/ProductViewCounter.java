@@ -0,0 +1,119 @@
+package com.example.demo.product.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Đếm lượt xem sản phẩm trong bộ nhớ, không ghi DB theo từng request:
+// mỗi sản phẩm một LongAdder (tự phân stripe khi nhiều thread cùng tăng), định kỳ gom delta
+// rồi ghi một batch vào products.view_count và ZSET trên Redis (dùng chung cho mọi node)
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ProductViewCounter {
+
+    public static final String MOST_VIEWED_KEY = "product:views";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    @Value("${product.views.ranking-size:10000}")
+    private long rankingSize;
+
+    private final Map<Long, LongAdder> counters = new ConcurrentHashMap<>();
+
+    // Đường nóng: get không khóa; computeIfAbsent chỉ chạy lần đầu gặp sản phẩm trong kỳ flush
+    public void record(Long productId) {
+        LongAdder counter = counters.get(productId);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(productId, id -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    @Scheduled(fixedDelayString = "${product.views.flush-interval:PT10S}",
+            initialDelayString = "${product.views.flush-interval:PT10S}")
+    public void flush() {
+        Map<Long, Long> deltas = drain();
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            writeToDatabase(deltas);
+        } catch (DataAccessException e) {
+            // Trả delta về bộ đếm để lần flush sau ghi lại
+            log.warn("Không ghi được {} lượt xem sản phẩm, thử lại lần sau: {}", deltas.size(), e.getMessage());
+            deltas.forEach((productId, delta) ->
+                    counters.computeIfAbsent(productId, id -> new LongAdder()).add(delta));
+            return;
+        }
+        try {
+            writeToRedis(deltas);
+        } catch (Exception e) {
+            // view_count trong Postgres vẫn đúng; bảng xếp hạng sẽ đọc từ DB nếu ZSET trống
+            log.warn("Không cập nhật được bảng xếp hạng lượt xem: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    // Sản phẩm không có lượt xem trong kỳ thì bỏ khỏi map để map không lớn dần theo số sản phẩm từng được xem.
+    // Lượt tăng rơi vào đúng khoảng giữa sumThenReset và remove sẽ mất; chấp nhận được với số liệu độ phổ biến
+    private Map<Long, Long> drain() {
+        Map<Long, Long> deltas = new HashMap<>();
+        counters.forEach((productId, counter) -> {
+            long delta = counter.sumThenReset();
+            if (delta > 0) {
+                deltas.put(productId, delta);
+            } else {
+                counters.remove(productId, counter);
+            }
+        });
+        return deltas;
+    }
+
+    // Không đụng updated_at: lượt xem không làm đổi ETag / cache chi tiết sản phẩm
+    private void writeToDatabase(Map<Long, Long> deltas) {
+        List<Object[]> args = new ArrayList<>(deltas.size());
+        deltas.forEach((productId, delta) -> args.add(new Object[]{delta, productId}));
+        jdbcTemplate.batchUpdate(
+                "UPDATE products SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?", args);
+    }
+
+    private void writeToRedis(Map<Long, Long> deltas) {
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection redis = (StringRedisConnection) connection;
+            deltas.forEach((productId, delta) -> redis.zIncrBy(MOST_VIEWED_KEY, delta, productId.toString()));
+            // Chỉ giữ top rankingSize sản phẩm
+            redis.zRemRange(MOST_VIEWED_KEY, 0, -rankingSize - 1);
+            return null;
+        });
+    }
+
+    public List<Long> topProductIds(int limit) {
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(MOST_VIEWED_KEY, 0, limit - 1L);
+        if (ids == null) {
+            return List.of();
+        }
+        return ids.stream().map(Long::valueOf).toList();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.review.controller;
+
+import com.example.demo.review.dto.ReviewRequest;
+import com.example.demo.review.dto.ReviewResponse;
+import com.example.demo.review.service.ReviewService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequiredArgsConstructor
+@Tag(name = "Review", description = "API đánh giá sản phẩm")
+public class ReviewController {
+
+    private final ReviewService reviewService;
+
+    @GetMapping("/api/products/{productId}/reviews")
+    @Operation(summary = "Lấy đánh giá đã duyệt của sản phẩm")
+    public ResponseEntity<Page<ReviewResponse>> getProductReviews(
+            @PathVariable Long productId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
+        return ResponseEntity.ok(reviewService.getProductReviews(productId, pageable));
+    }
+
+    @PostMapping("/api/products/{productId}/reviews")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Viết đánh giá", description = "Đánh giá chỉ hiển thị và được tính sao sau khi admin duyệt")
+    public ResponseEntity<ReviewResponse> createReview(
+            @PathVariable Long productId,
+            @Valid @RequestBody ReviewRequest request) {
+        ReviewResponse response = reviewService.createReview(productId, request);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
+    }
+
+    @PutMapping("/api/reviews/{reviewId}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Sửa đánh giá của tôi")
+    public ResponseEntity<ReviewResponse> updateReview(
+            @PathVariable Long reviewId,
+            @Valid @RequestBody ReviewRequest request) {
+        return ResponseEntity.ok(reviewService.updateReview(reviewId, request));
+    }
+
+    @DeleteMapping("/api/reviews/{reviewId}")
+    @PreAuthorize("hasAnyRole('USER', 'ADMIN')")
+    @Operation(summary = "Xóa đánh giá", description = "Người viết hoặc admin")
+    public ResponseEntity<Void> deleteReview(@PathVariable Long reviewId) {
+        reviewService.deleteReview(reviewId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping("/api/v1/admin/reviews/{reviewId}/approve")
+    @Operation(summary = "Duyệt đánh giá (admin)")
+    public ResponseEntity<ReviewResponse> approveReview(@PathVariable Long reviewId) {
+        return ResponseEntity.ok(reviewService.approveReview(reviewId));
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.demo.review.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Được cache (RATING_SUMMARY): histogram phải là ArrayList để đọc lại được từ Redis
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingSummaryResponse {
+    private Long ratingCount;
+    private Long ratingSum;
+    private List<Long> histogram; // histogram[i] = số review (i + 1) sao
+
+    public static ProductRatingSummaryResponse empty() {
+        return new ProductRatingSummaryResponse(0L, 0L, new ArrayList<>(List.of(0L, 0L, 0L, 0L, 0L)));
+    }
+}
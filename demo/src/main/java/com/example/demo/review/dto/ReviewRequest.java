@@ -0,0 +1,24 @@
+package com.example.demo.review.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewRequest {
+    @NotNull(message = "Số sao không được để trống")
+    @Min(value = 1, message = "Số sao từ 1 đến 5")
+    @Max(value = 5, message = "Số sao từ 1 đến 5")
+    private Integer rating;
+
+    @Size(max = 2000, message = "Nội dung tối đa 2000 ký tự")
+    private String comment;
+}
@@ -0,0 +1,25 @@
+package com.example.demo.review.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReviewResponse {
+    private Long id;
+    private Long productId;
+    private Long userId;
+    private String userName;
+    private Integer rating;
+    private String comment;
+    private Boolean isVerifiedPurchase;
+    private Boolean isApproved;
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+}
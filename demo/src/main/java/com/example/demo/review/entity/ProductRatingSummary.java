@@ -0,0 +1,54 @@
+package com.example.demo.review.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Tổng hợp đánh giá đã duyệt của một sản phẩm, cộng/trừ dần khi review được duyệt, sửa, xóa
+// (ProductRatingSummaryRepository.applyDelta), không tính lại bằng AVG/COUNT trên reviews
+@Entity
+@Table(name = "product_rating_summaries")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductRatingSummary {
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long ratingCount = 0L;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Long ratingSum = 0L;
+
+    // Histogram số review theo số sao
+    @Column(name = "stars_1", nullable = false)
+    @Builder.Default
+    private Long stars1 = 0L;
+
+    @Column(name = "stars_2", nullable = false)
+    @Builder.Default
+    private Long stars2 = 0L;
+
+    @Column(name = "stars_3", nullable = false)
+    @Builder.Default
+    private Long stars3 = 0L;
+
+    @Column(name = "stars_4", nullable = false)
+    @Builder.Default
+    private Long stars4 = 0L;
+
+    @Column(name = "stars_5", nullable = false)
+    @Builder.Default
+    private Long stars5 = 0L;
+
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,28 @@
+package com.example.demo.review.repository;
+
+import com.example.demo.review.entity.ProductRatingSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface ProductRatingSummaryRepository extends JpaRepository<ProductRatingSummary, Long> {
+
+    // Cộng (sign = 1) hoặc trừ (sign = -1) một review có số sao rating, tạo dòng nếu chưa có.
+    // Một câu lệnh nguyên tử nên các transaction song song không ghi đè nhau
+    @Modifying
+    @Query(value = "INSERT INTO product_rating_summaries AS s " +
+                   "(product_id, rating_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at) " +
+                   "VALUES (:productId, :sign, :sign * :rating, " +
+                   "CASE WHEN :rating = 1 THEN :sign ELSE 0 END, CASE WHEN :rating = 2 THEN :sign ELSE 0 END, " +
+                   "CASE WHEN :rating = 3 THEN :sign ELSE 0 END, CASE WHEN :rating = 4 THEN :sign ELSE 0 END, " +
+                   "CASE WHEN :rating = 5 THEN :sign ELSE 0 END, now()) " +
+                   "ON CONFLICT (product_id) DO UPDATE SET " +
+                   "rating_count = s.rating_count + EXCLUDED.rating_count, " +
+                   "rating_sum = s.rating_sum + EXCLUDED.rating_sum, " +
+                   "stars_1 = s.stars_1 + EXCLUDED.stars_1, stars_2 = s.stars_2 + EXCLUDED.stars_2, " +
+                   "stars_3 = s.stars_3 + EXCLUDED.stars_3, stars_4 = s.stars_4 + EXCLUDED.stars_4, " +
+                   "stars_5 = s.stars_5 + EXCLUDED.stars_5, updated_at = now()",
+           nativeQuery = true)
+    int applyDelta(@Param("productId") Long productId, @Param("rating") int rating, @Param("sign") int sign);
+}
@@ -3,9 +3,12 @@ package com.example.demo.review.repository;
 import com.example.demo.product.entity.Product;
 import com.example.demo.review.entity.Review;
 import com.example.demo.user.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
@@ -17,10 +20,12 @@ public interface ReviewRepository extends JpaRepository<Review, Long> {
     List<Review> findByProduct(Product product);
     Optional<Review> findByUserAndProduct(User user, Product product);
     
-    @Query("SELECT AVG(r.rating) FROM Review r WHERE r.product = :product AND r.isApproved = true")
-    Double getAverageRating(@Param("product") Product product);
-    
-    @Query("SELECT COUNT(r) FROM Review r WHERE r.product = :product AND r.isApproved = true")
-    Long getReviewCount(@Param("product") Product product);
+    // Lấy kèm user để hiển thị tên người đánh giá, không query từng dòng
+    @EntityGraph(attributePaths = "user")
+    Page<Review> findByProductIdAndIsApprovedTrue(Long productId, Pageable pageable);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id = :id")
+    Optional<Review> findByIdForUpdate(@Param("id") Long id);
 }
 
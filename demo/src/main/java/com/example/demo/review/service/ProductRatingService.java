@@ -0,0 +1,75 @@
+package com.example.demo.review.service;
+
+import com.example.demo.cache.CacheNames;
+import com.example.demo.cache.CacheService;
+import com.example.demo.review.dto.ProductRatingSummaryResponse;
+import com.example.demo.review.entity.ProductRatingSummary;
+import com.example.demo.review.repository.ProductRatingSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Đọc/ghi tổng hợp đánh giá theo sản phẩm. Ghi chạy trong transaction của ReviewService;
+// cache RATING_SUMMARY bị xóa sau commit qua ProductChangedEvent (ProductCacheEvictionListener)
+@Service
+@RequiredArgsConstructor
+public class ProductRatingService {
+
+    private final ProductRatingSummaryRepository summaryRepository;
+    private final CacheService cacheService;
+
+    @Value("${cache.rating-summary.ttl:1h}")
+    private Duration ratingSummaryTtl;
+
+    public void addRating(Long productId, int rating) {
+        summaryRepository.applyDelta(productId, rating, 1);
+    }
+
+    public void removeRating(Long productId, int rating) {
+        summaryRepository.applyDelta(productId, rating, -1);
+    }
+
+    public void changeRating(Long productId, int oldRating, int newRating) {
+        if (oldRating != newRating) {
+            removeRating(productId, oldRating);
+            addRating(productId, newRating);
+        }
+    }
+
+    // Một lần đọc cho cả trang: L1 → MGET Redis → một IN-query; sản phẩm chưa có review cũng được cache (rỗng)
+    public Map<Long, ProductRatingSummaryResponse> getSummaries(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Map.of();
+        }
+        return cacheService.getAll(CacheNames.RATING_SUMMARY, productIds, ProductRatingSummaryResponse.class,
+                ratingSummaryTtl, this::loadSummaries);
+    }
+
+    private Map<Long, ProductRatingSummaryResponse> loadSummaries(Set<Long> productIds) {
+        Map<Long, ProductRatingSummaryResponse> result = new HashMap<>();
+        for (ProductRatingSummary summary : summaryRepository.findAllById(productIds)) {
+            result.put(summary.getProductId(), toResponse(summary));
+        }
+        for (Long productId : productIds) {
+            result.putIfAbsent(productId, ProductRatingSummaryResponse.empty());
+        }
+        return result;
+    }
+
+    private ProductRatingSummaryResponse toResponse(ProductRatingSummary summary) {
+        return ProductRatingSummaryResponse.builder()
+                .ratingCount(summary.getRatingCount())
+                .ratingSum(summary.getRatingSum())
+                .histogram(new ArrayList<>(List.of(summary.getStars1(), summary.getStars2(), summary.getStars3(),
+                        summary.getStars4(), summary.getStars5())))
+                .build();
+    }
+}
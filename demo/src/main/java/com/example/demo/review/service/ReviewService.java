@@ -0,0 +1,138 @@
+package com.example.demo.review.service;
+
+import com.example.demo.exception.ResourceNotFoundException;
+import com.example.demo.product.entity.Product;
+import com.example.demo.product.entity.ProductStatus;
+import com.example.demo.product.event.ProductChangedEvent;
+import com.example.demo.product.repository.ProductRepository;
+import com.example.demo.review.dto.ReviewRequest;
+import com.example.demo.review.dto.ReviewResponse;
+import com.example.demo.review.entity.Review;
+import com.example.demo.review.repository.ReviewRepository;
+import com.example.demo.user.entity.User;
+import com.example.demo.user.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+// Chỉ review đã duyệt mới được tính vào tổng hợp đánh giá. Mọi thay đổi khóa dòng review (FOR UPDATE)
+// rồi cộng/trừ tổng hợp trong cùng transaction, nên duyệt/sửa/xóa song song không bị tính hai lần
+@Service
+@RequiredArgsConstructor
+public class ReviewService {
+
+    private final ReviewRepository reviewRepository;
+    private final ProductRepository productRepository;
+    private final UserRepository userRepository;
+    private final ProductRatingService productRatingService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Transactional
+    public ReviewResponse createReview(Long productId, ReviewRequest request) {
+        User user = getCurrentUser();
+        Product product = productRepository.findById(productId)
+                .orElseThrow(() -> new ResourceNotFoundException("Product", productId));
+        if (product.getStatus() == ProductStatus.DELETED) {
+            throw new RuntimeException("Sản phẩm đã bị xóa");
+        }
+        if (reviewRepository.findByUserAndProduct(user, product).isPresent()) {
+            throw new RuntimeException("Bạn đã đánh giá sản phẩm này");
+        }
+
+        // Chờ admin duyệt nên chưa ảnh hưởng tổng hợp
+        Review review = Review.builder()
+                .user(user)
+                .product(product)
+                .rating(request.getRating())
+                .comment(request.getComment())
+                .build();
+        return mapToResponse(reviewRepository.save(review));
+    }
+
+    @Transactional
+    public ReviewResponse updateReview(Long reviewId, ReviewRequest request) {
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
+                .orElseThrow(() -> new ResourceNotFoundException("Review", reviewId));
+        if (!review.getUser().getId().equals(getCurrentUser().getId())) {
+            throw new AccessDeniedException("Bạn không có quyền sửa đánh giá này");
+        }
+
+        int oldRating = review.getRating();
+        review.setRating(request.getRating());
+        review.setComment(request.getComment());
+        if (Boolean.TRUE.equals(review.getIsApproved())) {
+            Long productId = review.getProduct().getId();
+            productRatingService.changeRating(productId, oldRating, request.getRating());
+            eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        }
+        return mapToResponse(reviewRepository.save(review));
+    }
+
+    @Transactional
+    public ReviewResponse approveReview(Long reviewId) {
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
+                .orElseThrow(() -> new ResourceNotFoundException("Review", reviewId));
+        if (!Boolean.TRUE.equals(review.getIsApproved())) {
+            review.setIsApproved(true);
+            Long productId = review.getProduct().getId();
+            productRatingService.addRating(productId, review.getRating());
+            eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        }
+        return mapToResponse(reviewRepository.save(review));
+    }
+
+    @Transactional
+    public void deleteReview(Long reviewId) {
+        Review review = reviewRepository.findByIdForUpdate(reviewId)
+                .orElseThrow(() -> new ResourceNotFoundException("Review", reviewId));
+        if (!isAdmin() && !review.getUser().getId().equals(getCurrentUser().getId())) {
+            throw new AccessDeniedException("Bạn không có quyền xóa đánh giá này");
+        }
+
+        if (Boolean.TRUE.equals(review.getIsApproved())) {
+            Long productId = review.getProduct().getId();
+            productRatingService.removeRating(productId, review.getRating());
+            eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        }
+        reviewRepository.delete(review);
+    }
+
+    @Transactional(readOnly = true)
+    public Page<ReviewResponse> getProductReviews(Long productId, Pageable pageable) {
+        return reviewRepository.findByProductIdAndIsApprovedTrue(productId, pageable).map(this::mapToResponse);
+    }
+
+    private ReviewResponse mapToResponse(Review review) {
+        return ReviewResponse.builder()
+                .id(review.getId())
+                .productId(review.getProduct().getId())
+                .userId(review.getUser().getId())
+                .userName(review.getUser().getFullName())
+                .rating(review.getRating())
+                .comment(review.getComment())
+                .isVerifiedPurchase(review.getIsVerifiedPurchase())
+                .isApproved(review.getIsApproved())
+                .createdAt(review.getCreatedAt())
+                .updatedAt(review.getUpdatedAt())
+                .build();
+    }
+
+    private User getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String email = authentication.getName();
+        return userRepository.findUserByEmail(email)
+                .orElseThrow(() -> new RuntimeException("Người dùng không tồn tại"));
+    }
+
+    private boolean isAdmin() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals("ROLE_ADMIN"));
+    }
+}
@@ -0,0 +1,93 @@
+-- Chạy sau khi Hibernate cập nhật schema (spring.jpa.defer-datasource-initialization), mọi lệnh phải idempotent
+
+-- Full-text search cho sản phẩm: tsvector do Postgres tự duy trì + GIN index
+ALTER TABLE products ADD COLUMN IF NOT EXISTS search_vector tsvector
+    GENERATED ALWAYS AS (
+        setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+        setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+    ) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_product_search_vector ON products USING gin (search_vector);
+
+-- Số liệu tồn kho tổng hợp trên products: điền cho các dòng cũ (cột mới thêm có giá trị NULL)
+UPDATE products p SET total_stock = s.total_stock, min_variant_price = s.min_price,
+    max_variant_price = s.max_price, in_stock = s.total_stock > 0
+FROM (SELECT pr.id AS product_id, COALESCE(SUM(v.stock), 0) AS total_stock,
+             MIN(v.price) AS min_price, MAX(v.price) AS max_price
+      FROM products pr LEFT JOIN product_variants v ON v.product_id = pr.id
+      WHERE pr.total_stock IS NULL OR pr.in_stock IS NULL
+      GROUP BY pr.id) s
+WHERE p.id = s.product_id;
+
+-- Thuộc tính variant chuyển từ bảng variant_attributes (ElementCollection) sang cột JSONB product_variants.attributes.
+-- Bảng cũ được tạo rỗng nếu chưa có (DB mới) để câu chuyển dữ liệu luôn chạy được; dữ liệu cũ giữ nguyên, không còn dùng
+CREATE TABLE IF NOT EXISTS variant_attributes (variant_id bigint NOT NULL, attribute_name varchar(255) NOT NULL,
+    attribute_value varchar(255));
+UPDATE product_variants v SET attributes = a.attrs
+FROM (SELECT variant_id, jsonb_object_agg(attribute_name, attribute_value) AS attrs
+      FROM variant_attributes GROUP BY variant_id) a
+WHERE v.id = a.variant_id AND v.attributes IS NULL;
+UPDATE product_variants SET attributes = '{}'::jsonb WHERE attributes IS NULL;
+ALTER TABLE product_variants ALTER COLUMN attributes SET DEFAULT '{}'::jsonb;
+-- jsonb_path_ops: index nhỏ hơn, chỉ phục vụ toán tử @> (đúng kiểu lọc color=red AND size=M)
+CREATE INDEX IF NOT EXISTS idx_variant_attributes ON product_variants USING gin (attributes jsonb_path_ops);
+
+-- Lượt xem sản phẩm: dòng cũ và dòng do import (JDBC) chèn không có giá trị
+ALTER TABLE products ALTER COLUMN view_count SET DEFAULT 0;
+UPDATE products SET view_count = 0 WHERE view_count IS NULL;
+
+-- Stock hot (Redis): variant cũ/do import chèn mặc định không hot, reservation cũ coi như đã trừ vào stock.
+-- Partial index cho reconciler và cho phép tính lại counter (chỉ chứa reservation chưa áp dụng nên rất nhỏ)
+ALTER TABLE product_variants ALTER COLUMN hot_stock SET DEFAULT false;
+UPDATE product_variants SET hot_stock = false WHERE hot_stock IS NULL;
+ALTER TABLE stock_reservations ALTER COLUMN stock_applied SET DEFAULT true;
+UPDATE stock_reservations SET stock_applied = true WHERE stock_applied IS NULL;
+CREATE INDEX IF NOT EXISTS idx_reservation_unapplied ON stock_reservations (variant_id, id) WHERE stock_applied = false;
+
+-- Stock chia bucket: variant cũ/do import chèn mặc định một dòng
+ALTER TABLE product_variants ALTER COLUMN bucket_count SET DEFAULT 0;
+UPDATE product_variants SET bucket_count = 0 WHERE bucket_count IS NULL;
+
+-- Tổng hợp đánh giá: dựng từ các review đã duyệt cho sản phẩm chưa có dòng tổng hợp (lần chạy đầu).
+-- Sau đó chỉ ReviewService cộng/trừ dần
+INSERT INTO product_rating_summaries (product_id, rating_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5, updated_at)
+SELECT r.product_id, COUNT(*), SUM(r.rating),
+       COUNT(*) FILTER (WHERE r.rating = 1), COUNT(*) FILTER (WHERE r.rating = 2),
+       COUNT(*) FILTER (WHERE r.rating = 3), COUNT(*) FILTER (WHERE r.rating = 4),
+       COUNT(*) FILTER (WHERE r.rating = 5), now()
+FROM reviews r
+WHERE r.is_approved = true
+GROUP BY r.product_id
+ON CONFLICT (product_id) DO NOTHING;
+
+-- Id lấy từ sequence <bảng>_seq (increment 50, Hibernate cấp theo khối pooled-lo) thay cho IDENTITY để batch được INSERT.
+-- Bỏ identity để không còn hai nguồn cấp id, và đẩy sequence vượt qua id lớn nhất đã có (không bao giờ lùi lại).
+ALTER TABLE brands ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE categories ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE addresses ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE reviews ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE orders ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE order_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE stock_reservations ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE cart_items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE carts ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE products ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE product_variants ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE product_images ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE coupons ALTER COLUMN id DROP IDENTITY IF EXISTS;
+SELECT setval('brands_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM brands), (SELECT last_value FROM brands_seq)));
+SELECT setval('categories_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM categories), (SELECT last_value FROM categories_seq)));
+SELECT setval('users_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM users), (SELECT last_value FROM users_seq)));
+SELECT setval('addresses_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM addresses), (SELECT last_value FROM addresses_seq)));
+SELECT setval('reviews_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM reviews), (SELECT last_value FROM reviews_seq)));
+SELECT setval('orders_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM orders), (SELECT last_value FROM orders_seq)));
+SELECT setval('order_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM order_items), (SELECT last_value FROM order_items_seq)));
+SELECT setval('stock_reservations_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM stock_reservations), (SELECT last_value FROM stock_reservations_seq)));
+SELECT setval('cart_items_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM cart_items), (SELECT last_value FROM cart_items_seq)));
+SELECT setval('carts_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM carts), (SELECT last_value FROM carts_seq)));
+SELECT setval('products_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM products), (SELECT last_value FROM products_seq)));
+SELECT setval('product_variants_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM product_variants), (SELECT last_value FROM product_variants_seq)));
+SELECT setval('product_images_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM product_images), (SELECT last_value FROM product_images_seq)));
+SELECT setval('stock_buckets_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM stock_buckets), (SELECT last_value FROM stock_buckets_seq)));
+SELECT setval('coupons_seq', GREATEST((SELECT COALESCE(MAX(id), 0) FROM coupons), (SELECT last_value FROM coupons_seq)));
@@ -0,0 +1,89 @@
+package com.example.demo;
+
+import com.example.demo.catalog.entity.Category;
+import com.example.demo.catalog.repository.CategoryRepository;
+import com.example.demo.product.entity.Product;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductRepository;
+import com.example.demo.product.repository.ProductVariantRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Postgres + Redis thật qua Testcontainers, dùng chung cho mọi test tích hợp (một context Spring, một cặp container).
+// Không có Docker thì test bị bỏ qua. Các job định kỳ của inventory bị đẩy ra xa để test tự gọi khi cần
+@SpringBootTest(properties = {
+        "inventory.hot-stock.reconcile-interval=PT1H",
+        "inventory.buckets.rollup-interval=PT1H",
+        "inventory.buckets.full-rollup-interval=PT1H"
+})
+@ActiveProfiles("test")
+@Testcontainers(disabledWithoutDocker = true)
+public abstract class AbstractIntegrationTest {
+
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16");
+
+    @ServiceConnection(name = "redis")
+    static final GenericContainer<?> REDIS = new GenericContainer<>("redis:7").withExposedPorts(6379);
+
+    static {
+        POSTGRES.start();
+        REDIS.start();
+    }
+
+    @Autowired
+    protected PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    protected TransactionTemplate transactionTemplate() {
+        return new TransactionTemplate(transactionManager);
+    }
+
+    // Một sản phẩm mới với các variant có stock cho trước (SKU ngẫu nhiên để các test không đụng nhau),
+    // tổng stock trên products đã tính sẵn
+    protected List<ProductVariant> createVariants(int... stocks) {
+        return transactionTemplate().execute(status -> {
+            String suffix = UUID.randomUUID().toString();
+            Category category = categoryRepository.save(Category.builder().name("Test " + suffix).build());
+            Product product = productRepository.save(Product.builder()
+                    .sku("P-" + suffix)
+                    .name("Test " + suffix)
+                    .listPrice(new BigDecimal("100000"))
+                    .price(new BigDecimal("100000"))
+                    .category(category)
+                    .build());
+            List<ProductVariant> variants = new ArrayList<>();
+            for (int i = 0; i < stocks.length; i++) {
+                variants.add(variantRepository.save(ProductVariant.builder()
+                        .product(product)
+                        .sku("V-" + suffix + "-" + i)
+                        .stock(stocks[i])
+                        .price(new BigDecimal("100000"))
+                        .build()));
+            }
+            variantRepository.flush();
+            productRepository.refreshStockSummary(List.of(product.getId()));
+            return variants;
+        });
+    }
+}
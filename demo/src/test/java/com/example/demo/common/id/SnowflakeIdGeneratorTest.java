@@ -0,0 +1,134 @@
+package com.example.demo.common.id;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnowflakeIdGeneratorTest {
+
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    @Test
+    void layoutEncodesTimestampNodeAndSequence() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(5, () -> EPOCH + 1_000);
+
+        long first = generator.nextId();
+        long second = generator.nextId();
+
+        assertThat(millis(first)).isEqualTo(1_000);
+        assertThat(node(first)).isEqualTo(5);
+        assertThat(sequence(first)).isZero();
+        assertThat(millis(second)).isEqualTo(1_000);
+        assertThat(sequence(second)).isEqualTo(1);
+    }
+
+    @Test
+    void newMillisecondResetsSequence() {
+        AtomicLong clock = new AtomicLong(EPOCH + 1_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+        generator.nextId();
+        generator.nextId();
+        clock.set(EPOCH + 1_001);
+        long id = generator.nextId();
+
+        assertThat(millis(id)).isEqualTo(1_001);
+        assertThat(sequence(id)).isZero();
+    }
+
+    @Test
+    void clockRollbackKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(EPOCH + 10_000);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+        long beforeRollback = generator.nextId();
+        clock.set(EPOCH + 9_000);
+        long afterRollback = generator.nextId();
+        long next = generator.nextId();
+
+        assertThat(afterRollback).isGreaterThan(beforeRollback);
+        assertThat(next).isGreaterThan(afterRollback);
+        // Tiếp tục từ mốc cũ, không lấy thời gian đã lùi
+        assertThat(millis(afterRollback)).isEqualTo(10_000);
+    }
+
+    @Test
+    void sequenceOverflowBorrowsNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, () -> EPOCH + 1_000);
+
+        long last = 0;
+        for (int i = 0; i <= 4096; i++) {
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(last);
+            last = id;
+        }
+
+        assertThat(millis(last)).isEqualTo(1_001);
+        assertThat(sequence(last)).isZero();
+    }
+
+    @Test
+    void concurrentIdsAreUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, System::currentTimeMillis);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(ids).hasSize(80_000);
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(1024, System::currentTimeMillis))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void requiresNodeIdOutsideDevProfiles() {
+        assertThatThrownBy(() -> new SnowflakeIdGenerator(-1, new MockEnvironment()))
+                .isInstanceOf(IllegalStateException.class);
+
+        MockEnvironment testEnvironment = new MockEnvironment();
+        testEnvironment.setActiveProfiles("test");
+        long id = new SnowflakeIdGenerator(-1, testEnvironment).nextId();
+        assertThat(node(id)).isBetween(0L, 1023L);
+    }
+
+    private static long millis(long id) {
+        return id >>> 22;
+    }
+
+    private static long node(long id) {
+        return (id >>> 12) & 1023;
+    }
+
+    private static long sequence(long id) {
+        return id & 4095;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.common.pagination;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CursorTest {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        Cursor cursor = new Cursor(LocalDateTime.of(2024, 5, 17, 10, 30, 15, 123_456_000), 987_654_321_012L);
+
+        String encoded = cursor.encode();
+
+        assertThat(encoded).matches("[A-Za-z0-9_-]+"); // base64url, không padding: dùng thẳng trong query string
+        assertThat(Cursor.decode(encoded)).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripKeepsWholeSecondsAndLargeIds() {
+        Cursor cursor = new Cursor(LocalDateTime.of(2024, 1, 1, 0, 0), Long.MAX_VALUE);
+
+        assertThat(Cursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void rejectsTamperedCursors() {
+        String valid = new Cursor(LocalDateTime.of(2024, 5, 17, 10, 30), 42L).encode();
+
+        for (String tampered : List.of(
+                valid + "*",                       // ký tự ngoài base64url
+                valid.substring(0, valid.length() - 3),
+                encode("2024-05-17T10:30|abc"),    // id không phải số
+                encode("2024-05-17T10:30|"),
+                encode("not-a-date|42"),
+                encode("2024-05-17T10:30"),        // thiếu dấu phân cách
+                "")) {
+            assertThatThrownBy(() -> Cursor.decode(tampered))
+                    .as("cursor %s", tampered)
+                    .isInstanceOf(RuntimeException.class)
+                    .hasMessage("Cursor không hợp lệ");
+        }
+    }
+
+    @Test
+    void pageExposesCursorOfLastRowOnlyWhenMoreRowsExist() {
+        LocalDateTime createdAt = LocalDateTime.of(2024, 5, 17, 10, 30);
+        List<Long> rows = List.of(5L, 4L, 3L);
+
+        CursorPage<Long> page = CursorPage.of(rows, 2, id -> new Cursor(createdAt, id), pageRows -> pageRows);
+        CursorPage<Long> lastPage = CursorPage.of(rows, 3, id -> new Cursor(createdAt, id), pageRows -> pageRows);
+
+        assertThat(page.getItems()).containsExactly(5L, 4L);
+        assertThat(page.isHasNext()).isTrue();
+        assertThat(Cursor.decode(page.getNextCursor())).isEqualTo(new Cursor(createdAt, 4L));
+        assertThat(lastPage.isHasNext()).isFalse();
+        assertThat(lastPage.getNextCursor()).isNull();
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.demo.inventory.service;
+
+import com.example.demo.AbstractIntegrationTest;
+import com.example.demo.exception.InsufficientStockException;
+import com.example.demo.inventory.dto.StockBucketsResponse;
+import com.example.demo.inventory.entity.StockReservation;
+import com.example.demo.inventory.repository.StockReservationRepository;
+import com.example.demo.product.entity.Product;
+import com.example.demo.product.entity.ProductVariant;
+import com.example.demo.product.repository.ProductRepository;
+import com.example.demo.product.repository.ProductVariantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Nhiều checkout cùng lúc trên ba chế độ lưu stock (thường, chia bucket, hot trên Redis):
+// số bán ra đúng bằng stock, không dòng nào âm, tổng trên products về 0
+class CheckoutConcurrencyTest extends AbstractIntegrationTest {
+
+    private static final int STOCK = 20;
+    private static final int ATTEMPTS = 100;
+    private static final int THREADS = 16;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private StockReservationRepository stockReservationRepository;
+
+    @Autowired
+    private ProductVariantRepository variantRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        List<ProductVariant> variants = createVariants(STOCK, STOCK, STOCK);
+        ProductVariant plain = variants.get(0);
+        ProductVariant bucketed = variants.get(1);
+        ProductVariant hot = variants.get(2);
+        inventoryService.setStockBuckets(bucketed.getId(), 4);
+        inventoryService.setHotStock(hot.getId(), true);
+        hotStockService.rebuildIfRestarted();
+
+        Map<Long, AtomicInteger> sold = new ConcurrentHashMap<>();
+        variants.forEach(variant -> sold.put(variant.getId(), new AtomicInteger()));
+        List<Throwable> unexpected = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < ATTEMPTS; i++) {
+                // Mỗi variant có 25 đơn mua lẻ (nhiều hơn stock) và 25 đơn mua cả ba
+                List<ProductVariant> order = switch (i % 4) {
+                    case 0 -> List.of(plain);
+                    case 1 -> List.of(bucketed);
+                    case 2 -> List.of(hot);
+                    default -> variants;
+                };
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    checkout(order, sold, unexpected);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThat(unexpected).isEmpty();
+        variants.forEach(variant -> assertThat(sold.get(variant.getId())).as(variant.getSku()).hasValue(STOCK));
+
+        // Ghi phần giữ trên Redis và tổng các bucket về DB như các job định kỳ
+        inventoryService.applyPendingReservations(hot.getId(), Integer.MAX_VALUE);
+        inventoryService.rollupStockBuckets(List.of(bucketed.getId()));
+
+        StockBucketsResponse buckets = inventoryService.getStockBuckets(bucketed.getId());
+        assertThat(buckets.getBuckets()).hasSize(4).allMatch(stock -> stock >= 0);
+        assertThat(buckets.getStock()).isZero();
+        assertThat(hotStockService.getAvailable(hot.getId())).isZero();
+        transactionTemplate().executeWithoutResult(status -> {
+            for (ProductVariant variant : variants) {
+                assertThat(variantRepository.findById(variant.getId()).orElseThrow().getStock())
+                        .as(variant.getSku()).isZero();
+            }
+            Product product = productRepository.findById(plain.getProduct().getId()).orElseThrow();
+            assertThat(product.getTotalStock()).isZero();
+            assertThat(product.getInStock()).isFalse();
+        });
+    }
+
+    // Như OrderService.checkout: giữ stock cho cả đơn rồi lưu reservation trong cùng transaction
+    private void checkout(List<ProductVariant> order, Map<Long, AtomicInteger> sold, List<Throwable> unexpected) {
+        try {
+            transactionTemplate().executeWithoutResult(status -> {
+                Set<Long> heldInRedis = inventoryService.reserveStock(order.stream()
+                        .map(variant -> new InventoryService.StockChange(variant, 1))
+                        .collect(Collectors.toList()));
+                stockReservationRepository.saveAll(order.stream()
+                        .map(variant -> StockReservation.builder()
+                                .variant(variant)
+                                .quantity(1)
+                                .stockApplied(!heldInRedis.contains(variant.getId()))
+                                .expiresAt(LocalDateTime.now().plusMinutes(30))
+                                .build())
+                        .collect(Collectors.toList()));
+            });
+            order.forEach(variant -> sold.get(variant.getId()).incrementAndGet());
+        } catch (InsufficientStockException e) {
+            // Hết hàng: kết quả mong đợi khi số đơn vượt stock
+        } catch (Exception e) {
+            unexpected.add(e);
+        }
+    }
+}
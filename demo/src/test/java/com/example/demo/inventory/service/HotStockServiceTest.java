@@ -0,0 +1,139 @@
+package com.example.demo.inventory.service;
+
+import com.example.demo.AbstractIntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HotStockServiceTest extends AbstractIntegrationTest {
+
+    private static final String FENCE_KEY = "stock:hot:fence";
+
+    @Autowired
+    private HotStockService hotStockService;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private Long variantId;
+
+    @BeforeEach
+    void setUp() {
+        variantId = createVariants(10).get(0).getId();
+        inventoryService.setHotStock(variantId, true);
+        // Redis mới chưa có fence: nạp toàn bộ một lần như HotStockReconciler
+        hotStockService.rebuildIfRestarted();
+    }
+
+    @Test
+    void reserveTakesFromCounterAndRollbackReturnsIt() {
+        transactionTemplate().executeWithoutResult(status -> {
+            assertThat(hotStockService.reserve(Map.of(variantId, 3))).isEmpty();
+            assertThat(hotStockService.getAvailable(variantId)).isEqualTo(7L);
+            status.setRollbackOnly();
+        });
+
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(10L);
+    }
+
+    @Test
+    void committedReserveKeepsCounterDecremented() {
+        transactionTemplate().executeWithoutResult(status ->
+                assertThat(hotStockService.reserve(Map.of(variantId, 4))).isEmpty());
+
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(6L);
+    }
+
+    @Test
+    void shortReserveTakesNothing() {
+        Long otherId = createVariants(10).get(0).getId();
+        inventoryService.setHotStock(otherId, true);
+
+        assertThat(hotStockService.reserve(Map.of(variantId, 2, otherId, 11))).containsExactly(otherId);
+
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(10L);
+        assertThat(hotStockService.getAvailable(otherId)).isEqualTo(10L);
+    }
+
+    @Test
+    void rollbackAfterReloadDoesNotReturnStockTwice() {
+        transactionTemplate().executeWithoutResult(status -> {
+            hotStockService.reserve(Map.of(variantId, 3));
+            // Nạp lại (epoch mới) trong lúc checkout chưa kết thúc: reservation chưa lưu nên counter về 10
+            hotStockService.load(variantId);
+            status.setRollbackOnly();
+        });
+
+        // Hoàn hàng mang epoch cũ bị bỏ qua, không thành 13
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(10L);
+    }
+
+    @Test
+    void releaseAfterCommitReturnsStockToCurrentCounter() {
+        transactionTemplate().executeWithoutResult(status -> hotStockService.reserve(Map.of(variantId, 5)));
+
+        transactionTemplate().executeWithoutResult(status -> hotStockService.releaseAfterCommit(variantId, 5));
+
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(10L);
+    }
+
+    @Test
+    void releaseIsDroppedWhenTransactionRollsBack() {
+        transactionTemplate().executeWithoutResult(status -> hotStockService.reserve(Map.of(variantId, 5)));
+
+        transactionTemplate().executeWithoutResult(status -> {
+            hotStockService.releaseAfterCommit(variantId, 5);
+            status.setRollbackOnly();
+        });
+
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(5L);
+    }
+
+    @Test
+    void missingCounterIsRefusedThenRebuiltFromDatabase() {
+        stringRedisTemplate.delete("stock:hot:" + variantId);
+
+        assertThatThrownBy(() -> hotStockService.reserve(Map.of(variantId, 1)))
+                .hasMessage("Tồn kho đang được đồng bộ lại, vui lòng thử lại");
+
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(10L);
+        assertThat(hotStockService.reserve(Map.of(variantId, 1))).isEmpty();
+    }
+
+    @Test
+    void staleCounterAfterRedisRestartIsRefusedUntilRebuilt() {
+        // Giả lập Redis khởi động lại từ snapshot cũ: counter cũ (epoch vẫn khớp) và fence của tiến trình trước
+        stringRedisTemplate.opsForHash().put("stock:hot:" + variantId, "n", "100");
+        stringRedisTemplate.opsForValue().set(FENCE_KEY, "run-id-of-previous-process");
+
+        assertThatThrownBy(() -> hotStockService.reserve(Map.of(variantId, 50)))
+                .hasMessage("Tồn kho đang được đồng bộ lại, vui lòng thử lại");
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(100L);
+
+        assertThat(hotStockService.rebuildIfRestarted()).isTrue();
+
+        assertThat(hotStockService.getAvailable(variantId)).isEqualTo(10L);
+        assertThat(hotStockService.reserve(Map.of(variantId, 50))).containsExactly(variantId);
+        assertThat(hotStockService.rebuildIfRestarted()).isFalse();
+    }
+
+    @Test
+    void missingFenceIsTreatedAsRestart() {
+        stringRedisTemplate.delete(FENCE_KEY);
+
+        assertThatThrownBy(() -> hotStockService.reserve(Map.of(variantId, 1)))
+                .hasMessage("Tồn kho đang được đồng bộ lại, vui lòng thử lại");
+
+        assertThat(hotStockService.rebuildIfRestarted()).isTrue();
+        assertThat(hotStockService.reserve(Map.of(variantId, 1))).isEmpty();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.demo.product.service;
+
+import com.example.demo.product.dto.ProductFilterRequest;
+import com.example.demo.product.entity.ProductStatus;
+import com.example.demo.product.event.ProductChangedEvent;
+import com.example.demo.product.event.ProductStockChangedEvent;
+import com.example.demo.product.repository.ProductFacetView;
+import com.example.demo.product.repository.ProductRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductFacetIndexTest {
+
+    // Bucket giá: [0] < 100, [1] 100..199, [2] >= 200
+    private static final BigDecimal[] BOUNDARIES = {new BigDecimal("100"), new BigDecimal("200")};
+
+    private final ProductRepository productRepository = mock(ProductRepository.class);
+    private final ProductFacetIndex index = new ProductFacetIndex(productRepository);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(index, "priceBoundaries", BOUNDARIES);
+        when(productRepository.findFacetViewsByStatus(ProductStatus.ACTIVE)).thenReturn(List.of(
+                view(1L, 1L, 10L, "50", true),
+                view(2L, 1L, 20L, "150", false),
+                view(3L, 2L, 10L, "250", true),
+                view(4L, 2L, null, "150", true)));
+    }
+
+    @Test
+    void emptyBeforeFirstRebuild() {
+        ProductFacetIndex.FacetCounts counts = index.count(new ProductFilterRequest(), null);
+
+        assertThat(counts.categories()).isEmpty();
+        assertThat(counts.brands()).isEmpty();
+        assertThat(counts.priceBuckets()).containsExactly(0, 0, 0);
+    }
+
+    @Test
+    void countsWithoutFilters() {
+        index.rebuild();
+
+        ProductFacetIndex.FacetCounts counts = index.count(new ProductFilterRequest(), null);
+
+        assertThat(counts.categories()).isEqualTo(Map.of(1L, 2L, 2L, 2L));
+        assertThat(counts.brands()).isEqualTo(Map.of(10L, 2L, 20L, 1L)); // sản phẩm không có brand không được đếm
+        assertThat(counts.priceBuckets()).containsExactly(1, 2, 1);
+        assertThat(counts.priceBoundaries()).containsExactly(BOUNDARIES);
+    }
+
+    @Test
+    void eachFacetIgnoresItsOwnFilter() {
+        index.rebuild();
+
+        ProductFacetIndex.FacetCounts counts = index.count(ProductFilterRequest.builder().categoryId(1L).build(), null);
+
+        assertThat(counts.categories()).isEqualTo(Map.of(1L, 2L, 2L, 2L));
+        assertThat(counts.brands()).isEqualTo(Map.of(10L, 1L, 20L, 1L));
+        assertThat(counts.priceBuckets()).containsExactly(1, 1, 0);
+    }
+
+    @Test
+    void brandAndInStockFilters() {
+        index.rebuild();
+
+        ProductFacetIndex.FacetCounts counts = index.count(
+                ProductFilterRequest.builder().brandId(10L).inStockOnly(true).build(), null);
+
+        assertThat(counts.categories()).isEqualTo(Map.of(1L, 1L, 2L, 1L));
+        assertThat(counts.brands()).isEqualTo(Map.of(10L, 2L));
+        assertThat(counts.priceBuckets()).containsExactly(1, 0, 1);
+    }
+
+    @Test
+    void priceRangeSplittingBucketComparesEachPrice() {
+        index.rebuild();
+
+        ProductFacetIndex.FacetCounts counts = index.count(ProductFilterRequest.builder()
+                .minPrice(new BigDecimal("100"))
+                .maxPrice(new BigDecimal("199"))
+                .build(), null);
+
+        assertThat(counts.categories()).isEqualTo(Map.of(1L, 1L, 2L, 1L));
+        assertThat(counts.brands()).isEqualTo(Map.of(20L, 1L));
+        assertThat(counts.priceBuckets()).containsExactly(1, 2, 1);
+    }
+
+    @Test
+    void candidateIdsRestrictEveryFacet() {
+        index.rebuild();
+
+        ProductFacetIndex.FacetCounts counts = index.count(new ProductFilterRequest(), List.of(1L, 2L));
+
+        assertThat(counts.categories()).isEqualTo(Map.of(1L, 2L));
+        assertThat(counts.brands()).isEqualTo(Map.of(10L, 1L, 20L, 1L));
+        assertThat(counts.priceBuckets()).containsExactly(1, 1, 0);
+    }
+
+    @Test
+    void stockChangeFlipsInStockBit() {
+        index.rebuild();
+        ProductFilterRequest inStockOnly = ProductFilterRequest.builder().inStockOnly(true).build();
+
+        index.onProductStockChanged(new ProductStockChangedEvent(2L, true));
+        index.onProductStockChanged(new ProductStockChangedEvent(3L, false));
+
+        ProductFacetIndex.FacetCounts counts = index.count(inStockOnly, null);
+        assertThat(counts.categories()).isEqualTo(Map.of(1L, 2L, 2L, 1L));
+        assertThat(counts.priceBuckets()).containsExactly(1, 2, 0);
+    }
+
+    @Test
+    void productChangeMovesOrRemovesProduct() {
+        index.rebuild();
+        when(productRepository.findFacetViewByIdAndStatus(1L, ProductStatus.ACTIVE))
+                .thenReturn(Optional.of(view(1L, 2L, 20L, "500", true)));
+        when(productRepository.findFacetViewByIdAndStatus(3L, ProductStatus.ACTIVE)).thenReturn(Optional.empty());
+
+        index.onProductChanged(new ProductChangedEvent(1L));
+        index.onProductChanged(new ProductChangedEvent(3L));
+
+        ProductFacetIndex.FacetCounts counts = index.count(new ProductFilterRequest(), null);
+        assertThat(counts.categories()).isEqualTo(Map.of(1L, 1L, 2L, 2L));
+        assertThat(counts.brands()).isEqualTo(Map.of(20L, 2L));
+        assertThat(counts.priceBuckets()).containsExactly(0, 2, 1);
+    }
+
+    private static ProductFacetView view(Long id, Long categoryId, Long brandId, String price, boolean inStock) {
+        return new FacetView(id, categoryId, brandId, new BigDecimal(price), inStock);
+    }
+
+    private record FacetView(Long getId, Long getCategoryId, Long getBrandId, BigDecimal getPrice, Boolean getInStock)
+            implements ProductFacetView {
+    }
+}